@@ -0,0 +1,81 @@
+package com.open.su;
+
+import io.quarkus.cache.Cache;
+import io.quarkus.cache.CaffeineCache;
+
+import java.lang.reflect.Proxy;
+import java.time.Duration;
+import java.util.Date;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Stubs of the dependencies of the benchmarked classes, so that benchmarks run without starting Quarkus
+ */
+final class BenchmarkStubs {
+
+    private BenchmarkStubs() {
+    }
+
+    /**
+     * Event service without dependencies, to be subclassed by the benchmarks with the methods they call answering right
+     * away. Any other method fails on its missing dependencies.
+     */
+    static class StubEventService extends EventService {
+
+        private static final int STREAM_FETCH_SIZE = 100;
+        private static final Duration STREAM_IDLE_TIMEOUT = Duration.ofSeconds(30);
+        private static final int BATCH_CHUNK_SIZE = 500;
+        private static final int ORGANIZER_CACHED_IDS = 1000;
+
+        StubEventService() {
+            super(null, null, null, null, null, null, null, STREAM_FETCH_SIZE, STREAM_IDLE_TIMEOUT, BATCH_CHUNK_SIZE, ORGANIZER_CACHED_IDS);
+        }
+    }
+
+    /**
+     * Create a cache backed by a map, supporting the operations used by {@link EventResponseCache}
+     *
+     * @return the cache
+     */
+    static Cache inMemoryCache() {
+        Map<Object, Object> entries = new ConcurrentHashMap<>();
+        CaffeineCache caffeineCache = (CaffeineCache) Proxy.newProxyInstance(CaffeineCache.class.getClassLoader(), new Class<?>[]{CaffeineCache.class},
+                (proxy, method, args) -> switch (method.getName()) {
+                    case "getIfPresent" -> entries.get(args[0]);
+                    case "put" -> entries.put(args[0], args[1]);
+                    default -> throw new UnsupportedOperationException(method.getName());
+                });
+        return (Cache) Proxy.newProxyInstance(Cache.class.getClassLoader(), new Class<?>[]{Cache.class},
+                (proxy, method, args) -> {
+                    if (method.getName().equals("as")) {
+                        return caffeineCache;
+                    }
+                    throw new UnsupportedOperationException(method.getName());
+                });
+    }
+
+    /**
+     * Create an event with all its fields set
+     *
+     * @param name the name of the event
+     * @return the event
+     */
+    static Event event(String name) {
+        Event event = new Event();
+        event.id = UUID.randomUUID();
+        event.name = name;
+        event.description = "Benchmark description";
+        event.price = 10.0;
+        event.location = "Benchmark location";
+        event.startDate = new Date();
+        event.endDate = new Date();
+        event.organizerId = UUID.randomUUID();
+        event.creatorId = UUID.randomUUID();
+        event.createdAt = new Date();
+        event.updatedAt = new Date();
+        event.version = 0L;
+        return event;
+    }
+}
@@ -0,0 +1,68 @@
+package com.open.su;
+
+import com.open.su.exceptions.EventServiceException;
+import io.grpc.Status;
+import io.smallrye.mutiny.Uni;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Throughput of {@link EventController#getEventDetails(GetEventDetailsRequest)} when the event does not exist, against
+ * a stubbed {@link EventService}. {@link #legacyNotFound(Blackhole)} reproduces the previous error path: a wrapping
+ * exception with a stack trace, then a {@link io.grpc.StatusRuntimeException} with another one.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class ErrorPathBenchmark {
+
+    private EventController controller;
+    private GetEventDetailsRequest request;
+
+    @Setup
+    public void setup() {
+        EventService eventService = new BenchmarkStubs.StubEventService() {
+            @Override
+            public Uni<Event> getEventDetails(UUID id) {
+                return Uni.createFrom().failure(() -> EventServiceException.NOT_FOUND.withMessage("Event with id " + id + " does not exist"));
+            }
+        };
+        controller = new EventController(eventService, null);
+        request = GetEventDetailsRequest.newBuilder().setId(UUID.randomUUID().toString()).build();
+    }
+
+    @Benchmark
+    public void notFound(Blackhole blackhole) {
+        controller.getEventDetails(request).subscribe().with(blackhole::consume, blackhole::consume);
+    }
+
+    @Benchmark
+    public void legacyNotFound(Blackhole blackhole) {
+        UUID id = UUID.fromString(request.getId());
+        Uni.createFrom().<Event>failure(() -> new LegacyException("Event with id " + id + " does not exist", EventServiceException.NOT_FOUND))
+                .onFailure().transform(t -> Status.NOT_FOUND.withDescription(t.getMessage()).withCause(t.getCause()).asRuntimeException())
+                .subscribe().with(blackhole::consume, blackhole::consume);
+    }
+
+    /**
+     * Exception capturing its stack trace, as the expected failures of the event service used to
+     */
+    static class LegacyException extends RuntimeException {
+        LegacyException(String message, Throwable cause) {
+            super(message, cause);
+        }
+    }
+}
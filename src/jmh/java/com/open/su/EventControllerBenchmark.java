@@ -0,0 +1,124 @@
+package com.open.su;
+
+import io.quarkus.panache.common.Page;
+import io.quarkus.panache.common.Sort;
+import io.smallrye.mutiny.Uni;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of the Mutiny pipelines of {@link EventController} around a stubbed {@link EventService} answering right away,
+ * run with {@code -prof gc} to report their allocation rate. With {@code cached} set to false the events have no
+ * version, so their responses are built on every call instead of being served by the {@link EventResponseCache}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class EventControllerBenchmark {
+
+    @Param({"true", "false"})
+    boolean cached;
+
+    private EventController controller;
+    private ListEventsRequest listEventsRequest;
+    private GetEventDetailsRequest getEventDetailsRequest;
+    private CreateEventRequest createEventRequest;
+    private UpdateEventRequest updateEventRequest;
+    private DeleteEventRequest deleteEventRequest;
+
+    @Setup
+    public void setup() {
+        List<EventSummary> summaries = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            Event event = BenchmarkStubs.event("Benchmark event " + i);
+            event.version = cached ? event.version : null;
+            summaries.add(EventSummary.from(event));
+        }
+        Event event = BenchmarkStubs.event("Benchmark event");
+        event.version = cached ? event.version : null;
+
+        EventService eventService = new BenchmarkStubs.StubEventService() {
+            @Override
+            public Uni<List<EventSummary>> listEvents(Page page, Sort sort) {
+                return Uni.createFrom().item(summaries);
+            }
+
+            @Override
+            public Uni<Event> getEventDetails(UUID id) {
+                return Uni.createFrom().item(event);
+            }
+
+            @Override
+            public Uni<UUID> createEvent(Event created, String idempotencyKey) {
+                return Uni.createFrom().item(event.id);
+            }
+
+            @Override
+            public Uni<UUID> updateEvent(Event updated, Long expectedVersion) {
+                return Uni.createFrom().item(updated.id);
+            }
+
+            @Override
+            public Uni<Void> deleteEvent(UUID id) {
+                return Uni.createFrom().voidItem();
+            }
+        };
+        controller = new EventController(eventService, new EventResponseCache(BenchmarkStubs.inMemoryCache(), BenchmarkStubs.inMemoryCache()));
+
+        Instant now = Instant.now();
+        listEventsRequest = ListEventsRequest.newBuilder().setPage(0).setSize(10).build();
+        getEventDetailsRequest = GetEventDetailsRequest.newBuilder().setId(event.id.toString()).build();
+        createEventRequest = CreateEventRequest.newBuilder()
+                .setName("Benchmark event")
+                .setPrice(10.0)
+                .setStartDate(now.toString())
+                .setEndDate(now.plusSeconds(3600).toString())
+                .setOrganizerId(UUID.randomUUID().toString())
+                .build();
+        updateEventRequest = UpdateEventRequest.newBuilder().setId(event.id.toString()).setPrice(20.0).build();
+        deleteEventRequest = DeleteEventRequest.newBuilder().setId(event.id.toString()).build();
+    }
+
+    @Benchmark
+    public void listEvents(Blackhole blackhole) {
+        controller.listEvents(listEventsRequest).subscribe().with(blackhole::consume, blackhole::consume, () -> {
+        });
+    }
+
+    @Benchmark
+    public void getEventDetails(Blackhole blackhole) {
+        controller.getEventDetails(getEventDetailsRequest).subscribe().with(blackhole::consume, blackhole::consume);
+    }
+
+    @Benchmark
+    public void createEvent(Blackhole blackhole) {
+        controller.createEvent(createEventRequest).subscribe().with(blackhole::consume, blackhole::consume);
+    }
+
+    @Benchmark
+    public void updateEvent(Blackhole blackhole) {
+        controller.updateEvent(updateEventRequest).subscribe().with(blackhole::consume, blackhole::consume);
+    }
+
+    @Benchmark
+    public void deleteEvent(Blackhole blackhole) {
+        controller.deleteEvent(deleteEventRequest).subscribe().with(blackhole::consume, blackhole::consume);
+    }
+}
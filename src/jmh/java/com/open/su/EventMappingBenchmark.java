@@ -0,0 +1,80 @@
+package com.open.su;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.time.Instant;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of the conversions between {@link Event} and the gRPC messages, run with {@code -prof gc} to report their
+ * allocation rate.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class EventMappingBenchmark {
+
+    private CreateEventRequest createEventRequest;
+    private UpdateEventRequest updateEventRequest;
+    private Event event;
+    private Event update;
+
+    @Setup
+    public void setup() {
+        Instant now = Instant.now();
+        createEventRequest = CreateEventRequest.newBuilder()
+                .setName("Benchmark event")
+                .setDescription("Benchmark description")
+                .setPrice(10.0)
+                .setLocation("Benchmark location")
+                .setStartDate(now.toString())
+                .setEndDate(now.plusSeconds(3600).toString())
+                .setOrganizerId(UUID.randomUUID().toString())
+                .build();
+        updateEventRequest = UpdateEventRequest.newBuilder()
+                .setId(UUID.randomUUID().toString())
+                .setName("Updated benchmark event")
+                .setPrice(20.0)
+                .setStartDate(now.toString())
+                .setEndDate(now.plusSeconds(3600).toString())
+                .build();
+        event = BenchmarkStubs.event("Benchmark event");
+        update = new Event(updateEventRequest);
+    }
+
+    @Benchmark
+    public Event fromCreateEventRequest() {
+        return new Event(createEventRequest);
+    }
+
+    @Benchmark
+    public Event fromUpdateEventRequest() {
+        return new Event(updateEventRequest);
+    }
+
+    @Benchmark
+    public Event update() {
+        return event.update(update);
+    }
+
+    @Benchmark
+    public ListEventsResponse toListEventsResponse() {
+        return event.toListEventsResponse();
+    }
+
+    @Benchmark
+    public GetEventDetailsResponse toGetEventDetailsResponse() {
+        return event.toGetEventDetailsResponse();
+    }
+}
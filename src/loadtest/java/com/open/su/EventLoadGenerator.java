@@ -0,0 +1,380 @@
+package com.open.su;
+
+import io.grpc.ManagedChannel;
+import io.grpc.ManagedChannelBuilder;
+import io.grpc.Status;
+import io.grpc.stub.StreamObserver;
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.Recorder;
+
+import java.io.PrintStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Consumer;
+
+/**
+ * Load generator of the {@link EventGrpc} RPCs, driving a configurable mix of calls at a fixed rate against a running
+ * event service, e.g. started with {@code ./mvnw quarkus:dev} (gRPC on port 9000, Postgres from the dev services):
+ * <pre>
+ * ./mvnw -Ploadtest test-compile exec:java -Dloadtest.args="rate=500 duration=60 mix=list:40,details:40,create:10,update:5,delete:5"
+ * </pre>
+ * Calls are scheduled open loop: the latency of a call is measured from the time it was meant to be sent, not from
+ * the time it was actually sent, so a stalled service is charged for the calls it delayed (coordinated omission
+ * correction). The service time, measured from the actual send, is reported next to it. Calls waiting for one of the
+ * {@code concurrency} slots are delayed, not dropped.
+ * <p>
+ * Options, as {@code key=value} arguments:
+ * <ul>
+ *     <li>{@code target}: address of the gRPC server, {@code localhost:9000} by default</li>
+ *     <li>{@code rate}: calls per second, 200 by default</li>
+ *     <li>{@code duration}: measured seconds, 60 by default</li>
+ *     <li>{@code warmup}: seconds run before measuring, 10 by default</li>
+ *     <li>{@code concurrency}: maximum calls in flight, 64 by default</li>
+ *     <li>{@code mix}: relative weights of the RPCs, {@code list:40,details:40,create:10,update:5,delete:5} by default</li>
+ *     <li>{@code events}: events created before the run for the other RPCs to target, 1000 by default</li>
+ *     <li>{@code report}: file the report is written to, {@code target/loadtest-report.txt} by default</li>
+ * </ul>
+ */
+public final class EventLoadGenerator {
+
+    private final Map<Rpc, Recorder> responseTimes = new EnumMap<>(Rpc.class);
+    private final Map<Rpc, Recorder> serviceTimes = new EnumMap<>(Rpc.class);
+    private final Map<Rpc, Map<Status.Code, LongAdder>> errors = new EnumMap<>(Rpc.class);
+    private final IdPool ids = new IdPool();
+    private final EventGrpcGrpc.EventGrpcStub stub;
+
+    EventLoadGenerator(EventGrpcGrpc.EventGrpcStub stub) {
+        this.stub = stub;
+        for (Rpc rpc : Rpc.values()) {
+            responseTimes.put(rpc, new Recorder(3));
+            serviceTimes.put(rpc, new Recorder(3));
+            errors.put(rpc, new ConcurrentHashMap<>());
+        }
+    }
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> options = new LinkedHashMap<>();
+        options.put("target", "localhost:9000");
+        options.put("rate", "200");
+        options.put("duration", "60");
+        options.put("warmup", "10");
+        options.put("concurrency", "64");
+        options.put("mix", "list:40,details:40,create:10,update:5,delete:5");
+        options.put("events", "1000");
+        options.put("report", "target/loadtest-report.txt");
+        for (String arg : args) {
+            String[] option = arg.split("=", 2);
+            if (option.length != 2 || !options.containsKey(option[0])) {
+                throw new IllegalArgumentException("Unknown option " + arg + ", options are " + options.keySet());
+            }
+            options.put(option[0], option[1]);
+        }
+
+        ManagedChannel channel = ManagedChannelBuilder.forTarget(options.get("target")).usePlaintext().build();
+        try {
+            EventLoadGenerator generator = new EventLoadGenerator(EventGrpcGrpc.newStub(channel));
+            generator.seed(EventGrpcGrpc.newBlockingStub(channel), Integer.parseInt(options.get("events")));
+
+            Mix mix = Mix.parse(options.get("mix"));
+            int rate = Integer.parseInt(options.get("rate"));
+            int concurrency = Integer.parseInt(options.get("concurrency"));
+            generator.run(mix, rate, TimeUnit.SECONDS.toNanos(Long.parseLong(options.get("warmup"))), concurrency);
+            generator.reset();
+            long durationNanos = generator.run(mix, rate, TimeUnit.SECONDS.toNanos(Long.parseLong(options.get("duration"))), concurrency);
+
+            Path report = Path.of(options.get("report"));
+            if (report.getParent() != null) {
+                Files.createDirectories(report.getParent());
+            }
+            try (PrintStream out = new PrintStream(Files.newOutputStream(report))) {
+                generator.report(out, options, durationNanos);
+            }
+            generator.report(System.out, options, durationNanos);
+        } finally {
+            channel.shutdownNow().awaitTermination(10, TimeUnit.SECONDS);
+        }
+    }
+
+    /**
+     * Create the events targeted by the details, update and delete calls
+     *
+     * @param blockingStub the stub to create events with
+     * @param count        the number of events to create
+     */
+    void seed(EventGrpcGrpc.EventGrpcBlockingStub blockingStub, int count) {
+        for (int i = 0; i < count; i++) {
+            ids.add(blockingStub.createEvent(Rpc.createEventRequest()).getId());
+        }
+    }
+
+    /**
+     * Send calls at a fixed rate, then wait for the calls in flight
+     *
+     * @param mix           the mix of RPCs
+     * @param rate          the calls per second
+     * @param durationNanos how long calls are sent
+     * @param concurrency   the maximum calls in flight
+     * @return how long the run took, in nanoseconds
+     * @throws InterruptedException if interrupted while waiting for a slot
+     */
+    long run(Mix mix, int rate, long durationNanos, int concurrency) throws InterruptedException {
+        Semaphore slots = new Semaphore(concurrency);
+        long intervalNanos = TimeUnit.SECONDS.toNanos(1) / rate;
+        long start = System.nanoTime();
+        for (long i = 0; i * intervalNanos < durationNanos; i++) {
+            long intended = start + i * intervalNanos;
+            for (long wait = intended - System.nanoTime(); wait > 0; wait = intended - System.nanoTime()) {
+                LockSupport.parkNanos(wait);
+            }
+            slots.acquire();
+
+            Rpc rpc = mix.pick(ThreadLocalRandom.current());
+            long sent = System.nanoTime();
+            rpc.call(stub, ids, status -> {
+                long done = System.nanoTime();
+                responseTimes.get(rpc).recordValue(done - intended);
+                serviceTimes.get(rpc).recordValue(done - sent);
+                if (!status.isOk()) {
+                    errors.get(rpc).computeIfAbsent(status.getCode(), code -> new LongAdder()).increment();
+                }
+                slots.release();
+            });
+        }
+
+        // All the slots are free once the calls in flight completed
+        slots.acquire(concurrency);
+        return System.nanoTime() - start;
+    }
+
+    /**
+     * Forget the calls recorded so far, at the end of the warmup
+     */
+    void reset() {
+        responseTimes.values().forEach(Recorder::reset);
+        serviceTimes.values().forEach(Recorder::reset);
+        errors.values().forEach(Map::clear);
+    }
+
+    /**
+     * Write the latency report of the recorded calls
+     *
+     * @param out           the output
+     * @param options       the options of the run
+     * @param durationNanos how long the run took, in nanoseconds
+     */
+    void report(PrintStream out, Map<String, String> options, long durationNanos) {
+        Map<Rpc, Histogram> response = new EnumMap<>(Rpc.class);
+        Map<Rpc, Histogram> service = new EnumMap<>(Rpc.class);
+        long calls = 0;
+        for (Rpc rpc : Rpc.values()) {
+            response.put(rpc, responseTimes.get(rpc).getIntervalHistogram());
+            service.put(rpc, serviceTimes.get(rpc).getIntervalHistogram());
+            calls += response.get(rpc).getTotalCount();
+        }
+
+        out.printf("Event service load test, %s%n", Instant.now());
+        options.forEach((key, value) -> out.printf("  %s=%s%n", key, value));
+        out.printf("Achieved rate: %.1f calls/s%n%n", calls / (durationNanos / 1e9));
+
+        out.printf("%-8s %8s %8s | %-40s | %-40s%n", "", "", "", "response time (ms), corrected", "service time (ms)");
+        out.printf("%-8s %8s %8s | %9s %9s %9s %9s | %9s %9s %9s %9s%n", "rpc", "calls", "errors",
+                "p50", "p99", "p99.9", "max", "p50", "p99", "p99.9", "max");
+        for (Rpc rpc : Rpc.values()) {
+            long failed = errors.get(rpc).values().stream().mapToLong(LongAdder::sum).sum();
+            Histogram r = response.get(rpc);
+            Histogram s = service.get(rpc);
+            out.printf("%-8s %8d %8d | %9.2f %9.2f %9.2f %9.2f | %9.2f %9.2f %9.2f %9.2f%n", rpc, r.getTotalCount(), failed,
+                    millis(r.getValueAtPercentile(50)), millis(r.getValueAtPercentile(99)), millis(r.getValueAtPercentile(99.9)), millis(r.getMaxValue()),
+                    millis(s.getValueAtPercentile(50)), millis(s.getValueAtPercentile(99)), millis(s.getValueAtPercentile(99.9)), millis(s.getMaxValue()));
+        }
+
+        for (Rpc rpc : Rpc.values()) {
+            if (!errors.get(rpc).isEmpty()) {
+                out.printf("%nErrors of %s: %s%n", rpc, errors.get(rpc));
+            }
+            if (response.get(rpc).getTotalCount() > 0) {
+                out.printf("%nResponse time distribution of %s (ms):%n", rpc);
+                response.get(rpc).outputPercentileDistribution(out, 1e6);
+            }
+        }
+    }
+
+    static double millis(long nanos) {
+        return nanos / 1e6;
+    }
+
+    /**
+     * RPCs of {@link EventGrpc}
+     */
+    enum Rpc {
+        LIST {
+            @Override
+            void call(EventGrpcGrpc.EventGrpcStub stub, IdPool ids, Consumer<Status> done) {
+                ListEventsRequest request = ListEventsRequest.newBuilder()
+                        .setPage(ThreadLocalRandom.current().nextInt(10))
+                        .setSize(10)
+                        .build();
+                stub.listEvents(request, new DoneObserver<>(done));
+            }
+        },
+        DETAILS {
+            @Override
+            void call(EventGrpcGrpc.EventGrpcStub stub, IdPool ids, Consumer<Status> done) {
+                stub.getEventDetails(GetEventDetailsRequest.newBuilder().setId(ids.pick()).build(), new DoneObserver<>(done));
+            }
+        },
+        CREATE {
+            @Override
+            void call(EventGrpcGrpc.EventGrpcStub stub, IdPool ids, Consumer<Status> done) {
+                stub.createEvent(createEventRequest(), new DoneObserver<CreateEventResponse>(done) {
+                    @Override
+                    public void onNext(CreateEventResponse response) {
+                        ids.add(response.getId());
+                    }
+                });
+            }
+        },
+        UPDATE {
+            @Override
+            void call(EventGrpcGrpc.EventGrpcStub stub, IdPool ids, Consumer<Status> done) {
+                UpdateEventRequest request = UpdateEventRequest.newBuilder()
+                        .setId(ids.pick())
+                        .setPrice(1 + ThreadLocalRandom.current().nextInt(100))
+                        .build();
+                stub.updateEvent(request, new DoneObserver<>(done));
+            }
+        },
+        DELETE {
+            @Override
+            void call(EventGrpcGrpc.EventGrpcStub stub, IdPool ids, Consumer<Status> done) {
+                stub.deleteEvent(DeleteEventRequest.newBuilder().setId(ids.take()).build(), new DoneObserver<>(done));
+            }
+        };
+
+        /**
+         * Send a call
+         *
+         * @param stub the stub to call
+         * @param ids  the ids of the existing events
+         * @param done called with the status of the call once it completes
+         */
+        abstract void call(EventGrpcGrpc.EventGrpcStub stub, IdPool ids, Consumer<Status> done);
+
+        static CreateEventRequest createEventRequest() {
+            Instant start = Instant.now().plusSeconds(ThreadLocalRandom.current().nextInt(365 * 24 * 3600));
+            return CreateEventRequest.newBuilder()
+                    .setName("loadtest " + UUID.randomUUID())
+                    .setDescription("Load test event")
+                    .setPrice(1 + ThreadLocalRandom.current().nextInt(100))
+                    .setLocation("Load test location")
+                    .setStartDate(start.toString())
+                    .setEndDate(start.plusSeconds(3600).toString())
+                    .setOrganizerId(UUID.randomUUID().toString())
+                    .build();
+        }
+    }
+
+    /**
+     * Relative weights of the RPCs
+     *
+     * @param cumulativeWeights the cumulative weights, indexed by {@link Rpc#ordinal()}
+     */
+    record Mix(int[] cumulativeWeights) {
+
+        /**
+         * Parse a mix such as {@code list:40,details:40,create:10,update:5,delete:5}, missing RPCs are not called
+         *
+         * @param mix the mix
+         * @return the parsed mix
+         */
+        static Mix parse(String mix) {
+            int[] weights = new int[Rpc.values().length];
+            for (String entry : mix.split(",")) {
+                String[] weight = entry.trim().split(":");
+                weights[Rpc.valueOf(weight[0].trim().toUpperCase()).ordinal()] = Integer.parseInt(weight[1].trim());
+            }
+            for (int i = 1; i < weights.length; i++) {
+                weights[i] += weights[i - 1];
+            }
+            if (weights[weights.length - 1] <= 0) {
+                throw new IllegalArgumentException("Mix " + mix + " calls no RPC");
+            }
+            return new Mix(weights);
+        }
+
+        Rpc pick(ThreadLocalRandom random) {
+            int value = random.nextInt(cumulativeWeights[cumulativeWeights.length - 1]);
+            int i = 0;
+            while (value >= cumulativeWeights[i]) {
+                i++;
+            }
+            return Rpc.values()[i];
+        }
+    }
+
+    /**
+     * Ids of the existing events. When there are none, a random id is used and the call fails with not found.
+     */
+    static class IdPool {
+        private final List<String> ids = new ArrayList<>();
+
+        synchronized void add(String id) {
+            ids.add(id);
+        }
+
+        synchronized String pick() {
+            return ids.isEmpty() ? UUID.randomUUID().toString() : ids.get(ThreadLocalRandom.current().nextInt(ids.size()));
+        }
+
+        synchronized String take() {
+            if (ids.isEmpty()) {
+                return UUID.randomUUID().toString();
+            }
+            int i = ThreadLocalRandom.current().nextInt(ids.size());
+            String id = ids.get(i);
+            ids.set(i, ids.get(ids.size() - 1));
+            ids.remove(ids.size() - 1);
+            return id;
+        }
+    }
+
+    /**
+     * Observer of a call, reporting its status once it completes
+     *
+     * @param <T> the type of response
+     */
+    static class DoneObserver<T> implements StreamObserver<T> {
+        private final Consumer<Status> done;
+
+        DoneObserver(Consumer<Status> done) {
+            this.done = done;
+        }
+
+        @Override
+        public void onNext(T value) {
+        }
+
+        @Override
+        public void onError(Throwable t) {
+            done.accept(Status.fromThrowable(t));
+        }
+
+        @Override
+        public void onCompleted() {
+            done.accept(Status.OK);
+        }
+    }
+}
@@ -1,13 +1,22 @@
 package com.open.su;
 
 import io.quarkus.hibernate.reactive.panache.PanacheEntityBase;
+import io.vertx.core.json.JsonArray;
+import io.vertx.mutiny.sqlclient.Row;
 import jakarta.persistence.*;
 import jakarta.validation.constraints.Min;
+import org.hibernate.annotations.ColumnDefault;
 import org.hibernate.annotations.CreationTimestamp;
 import org.hibernate.annotations.UpdateTimestamp;
 
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
 import java.util.Date;
+import java.util.HexFormat;
 import java.util.Optional;
 import java.util.UUID;
 
@@ -18,8 +27,28 @@ import java.util.UUID;
  * @see EventController
  */
 @Entity
+@Table(indexes = {
+        @Index(name = "event_name_id_idx", columnList = "name, id"),
+        @Index(name = "event_start_date_id_idx", columnList = "start_date, id"),
+        @Index(name = "event_end_date_id_idx", columnList = "end_date, id"),
+        @Index(name = "event_price_id_idx", columnList = "price, id"),
+        @Index(name = "event_location_id_idx", columnList = "location, id"),
+        @Index(name = "event_organizer_id_start_date_id_idx", columnList = "organizer_id, start_date, id"),
+})
 public class Event extends PanacheEntityBase {
 
+    /**
+     * Columns of the event table needed to list events, the version identifying the cached responses
+     *
+     * @see EventResponseCache
+     */
+    static final String LIST_COLUMNS = "id, name, description, price, location, start_date, end_date, updated_at, version";
+
+    /**
+     * Columns of the event table needed to get the details of an event
+     */
+    static final String DETAILS_COLUMNS = LIST_COLUMNS + ", organizer_id, creator_id, created_at";
+
     @Id
     @GeneratedValue(strategy = GenerationType.UUID)
     UUID id;
@@ -46,6 +75,13 @@ public class Event extends PanacheEntityBase {
     @Column(name = "updated_at")
     @UpdateTimestamp
     Date updatedAt;
+    /**
+     * Version of the event, incremented by each update so that an update can be conditioned on it
+     */
+    @Version
+    @ColumnDefault("0")
+    @Column(nullable = false)
+    Long version;
 
     /**
      * Create a new event from a {@link CreateEventRequest}
@@ -78,6 +114,29 @@ public class Event extends PanacheEntityBase {
         this.organizerId = request.hasOrganizerId() ? UUID.fromString(request.getOrganizerId()) : null;
     }
 
+    /**
+     * Create a new event from a row of the event table with either the {@link #LIST_COLUMNS} or the
+     * {@link #DETAILS_COLUMNS}
+     *
+     * @param row the row
+     */
+    public Event(Row row) {
+        this.id = row.getUUID("id");
+        this.name = row.getString("name");
+        this.description = row.getString("description");
+        this.price = row.getDouble("price");
+        this.location = row.getString("location");
+        this.startDate = toDate(row.getLocalDateTime("start_date"));
+        this.endDate = toDate(row.getLocalDateTime("end_date"));
+        this.updatedAt = toDate(row.getLocalDateTime("updated_at"));
+        this.version = row.getLong("version");
+        if (row.getColumnIndex("organizer_id") >= 0) {
+            this.organizerId = row.getUUID("organizer_id");
+            this.creatorId = row.getUUID("creator_id");
+            this.createdAt = toDate(row.getLocalDateTime("created_at"));
+        }
+    }
+
     public Event() {
 
     }
@@ -106,15 +165,7 @@ public class Event extends PanacheEntityBase {
      * @return the grpc response
      */
     public ListEventsResponse toListEventsResponse() {
-        return ListEventsResponse.newBuilder()
-                .setId(this.id.toString())
-                .setName(this.name)
-                .setDescription(this.description)
-                .setPrice(this.price)
-                .setLocation(this.location)
-                .setStartDate(this.startDate.toInstant().toString())
-                .setEndDate(this.endDate.toInstant().toString())
-                .build();
+        return EventSummary.from(this).toListEventsResponse();
     }
 
     /**
@@ -137,4 +188,39 @@ public class Event extends PanacheEntityBase {
                 .setUpdatedAt(this.updatedAt.toInstant().toString())
                 .build();
     }
+
+    /**
+     * Hash the fields of the event set by a {@link CreateEventRequest}, to tell whether two creations request the same
+     * event
+     *
+     * @return the SHA-256 hash, as 64 hexadecimal characters
+     */
+    String requestHash() {
+        String fields = new JsonArray()
+                .add(name)
+                .add(description)
+                .add(price)
+                .add(location)
+                .add(startDate == null ? null : startDate.getTime())
+                .add(endDate == null ? null : endDate.getTime())
+                .add(organizerId == null ? null : organizerId.toString())
+                .encode();
+        try {
+            return HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(fields.getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            // Every Java platform supports SHA-256
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Convert a timestamp read from the database to a {@link Date}, timestamps being stored in the default time zone
+     * as Hibernate does
+     *
+     * @param timestamp the timestamp
+     * @return the date, null if the timestamp is null
+     */
+    static Date toDate(LocalDateTime timestamp) {
+        return timestamp == null ? null : Date.from(timestamp.atZone(ZoneId.systemDefault()).toInstant());
+    }
 }
@@ -0,0 +1,307 @@
+package com.open.su;
+
+import com.open.su.exceptions.EventServiceException;
+import io.quarkus.runtime.StartupEvent;
+import io.smallrye.mutiny.Multi;
+import io.smallrye.mutiny.subscription.BackPressureFailure;
+import io.smallrye.mutiny.subscription.BackPressureStrategy;
+import io.smallrye.mutiny.subscription.MultiEmitter;
+import io.vertx.core.json.JsonObject;
+import io.vertx.mutiny.core.Vertx;
+import io.vertx.mutiny.pgclient.pubsub.PgSubscriber;
+import io.vertx.pgclient.PgConnectOptions;
+import jakarta.annotation.PreDestroy;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.enterprise.event.Observes;
+import jakarta.inject.Inject;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.jboss.logging.Logger;
+
+import java.time.Instant;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Feed of the changes of the events, pushed by Postgres: a trigger on the event table notifies the
+ * {@value #CHANNEL} channel of each created, updated and deleted event when its transaction commits (see
+ * {@link EventSchema}). Each node listens to the channel with a single connection and fans the changes out in memory
+ * to its watchers, so watching costs the database nothing whatever the number of watchers.
+ * <p>
+ * Each change gets the next number of the sequence of the feed when it is received, its position being the id of the
+ * feed and that number: change times come from the clocks of the writing transactions, so several changes may share
+ * one and they are not received in their order. The last {@code event-service.watch.history-size} changes are kept to
+ * resume watching after the position of a change, on the same node. Each watcher buffers at most
+ * {@code event-service.watch.buffer-size} changes: a watcher falling further behind fails with
+ * {@link EventServiceException#RESOURCE_EXHAUSTED} and has to resume after the last change it received. Changes
+ * notified while the listening connection is lost are missed, so watchers fail when it is restored and cannot resume
+ * before it.
+ * <p>
+ * Changes are emitted to the watchers outside the lock of the feed, each watcher receiving them in the order of the
+ * sequence.
+ *
+ * @see EventStreamController#watchEvents(WatchEventsRequest, io.grpc.stub.StreamObserver)
+ */
+@ApplicationScoped
+public class EventChangeFeed {
+
+    /**
+     * Channel notified by the trigger of the event table
+     */
+    static final String CHANNEL = "event_changes";
+
+    private static final Logger LOGGER = Logger.getLogger(EventChangeFeed.class);
+
+    private final PgSubscriber subscriber;
+    private final int historySize;
+    private final int bufferSize;
+    private final String feedId = UUID.randomUUID().toString();
+    private final Deque<Change> history = new ArrayDeque<>();
+    private final List<Watcher> watchers = new ArrayList<>();
+    private long sequence;
+    private long retainedAfter;
+    private boolean listening;
+
+    @Inject
+    public EventChangeFeed(Vertx vertx,
+                           @ConfigProperty(name = "quarkus.datasource.reactive.url") String url,
+                           @ConfigProperty(name = "quarkus.datasource.username") Optional<String> username,
+                           @ConfigProperty(name = "quarkus.datasource.password") Optional<String> password,
+                           @ConfigProperty(name = "event-service.watch.history-size", defaultValue = "1000") int historySize,
+                           @ConfigProperty(name = "event-service.watch.buffer-size", defaultValue = "1000") int bufferSize) {
+        PgConnectOptions options = PgConnectOptions.fromUri(url.replaceFirst("^vertx-reactive:", ""));
+        username.ifPresent(options::setUser);
+        password.ifPresent(options::setPassword);
+        this.subscriber = PgSubscriber.subscriber(vertx, options).reconnectPolicy(retries -> 1000L);
+        this.historySize = historySize;
+        this.bufferSize = bufferSize;
+    }
+
+    void listen(@Observes StartupEvent event) {
+        subscriber.channel(CHANNEL)
+                .subscribeHandler(this::onListening)
+                .handler(this::publish);
+        subscriber.connect().subscribe().with(
+                ignored -> LOGGER.infof("Listening to the %s channel", CHANNEL),
+                t -> LOGGER.error("Failed to listen to the " + CHANNEL + " channel", t));
+    }
+
+    /**
+     * Get the position of a change, to resume watching after it
+     *
+     * @param change the change
+     * @return the position
+     */
+    public String position(Change change) {
+        return feedId + ":" + change.sequence();
+    }
+
+    /**
+     * Watch the changes of the events
+     *
+     * @param after the position of the change after which the retained changes are replayed before the new ones, only
+     *              the new changes if null
+     * @return a {@link Multi} of the changes, failing if the watcher falls too far behind
+     */
+    public Multi<Change> watch(String after) {
+        LOGGER.tracef("Watching changes after %s", after);
+        return Multi.createFrom().<Change>emitter(emitter -> {
+                    Watcher watcher = new Watcher(emitter);
+                    List<Change> replayed = new ArrayList<>();
+                    synchronized (this) {
+                        if (after != null) {
+                            long last;
+                            try {
+                                last = parsePosition(after);
+                            } catch (EventServiceException e) {
+                                LOGGER.debugf("[WATCH] %s", e.getMessage());
+                                emitter.fail(e);
+                                return;
+                            }
+                            for (Change change : history) {
+                                if (change.sequence() > last) {
+                                    replayed.add(change);
+                                }
+                            }
+                        }
+                        watchers.add(watcher);
+                        // Taken before the lock of the feed is released, so that no new change is emitted before the
+                        // replayed ones
+                        watcher.lock.lock();
+                    }
+                    try {
+                        replayed.forEach(emitter::emit);
+                    } finally {
+                        watcher.lock.unlock();
+                    }
+                    emitter.onTermination(() -> {
+                        synchronized (this) {
+                            watchers.remove(watcher);
+                        }
+                    });
+                }, BackPressureStrategy.ERROR)
+                .onOverflow().buffer(bufferSize)
+                .onFailure(BackPressureFailure.class).transform(t -> {
+                    String message = "Watcher is more than " + bufferSize + " changes behind";
+                    LOGGER.debugf("[WATCH] %s", message);
+                    return EventServiceException.RESOURCE_EXHAUSTED.withMessage(message);
+                });
+    }
+
+    /**
+     * Parse the position of a change to resume watching after it, to be called with the lock of the feed
+     *
+     * @param position the position
+     * @return the sequence number of the change
+     * @throws EventServiceException if the position is not valid, or if the changes after it are not retained
+     */
+    private long parsePosition(String position) {
+        int separator = position.lastIndexOf(':');
+        long last;
+        try {
+            last = Long.parseLong(position.substring(separator + 1));
+        } catch (NumberFormatException e) {
+            throw EventServiceException.INVALID_ARGUMENT.withMessage("Invalid position " + position);
+        }
+        if (separator <= 0 || last < 0) {
+            throw EventServiceException.INVALID_ARGUMENT.withMessage("Invalid position " + position);
+        }
+        if (!position.substring(0, separator).equals(feedId)) {
+            throw EventServiceException.RESOURCE_EXHAUSTED.withMessage("Changes after " + position + " are not retained by this feed");
+        }
+        if (last > sequence) {
+            throw EventServiceException.INVALID_ARGUMENT.withMessage("Invalid position " + position);
+        }
+        if (last < retainedAfter) {
+            throw EventServiceException.RESOURCE_EXHAUSTED.withMessage("Changes after " + position + " are no longer retained");
+        }
+        return last;
+    }
+
+    /**
+     * Publish a notification of the {@value #CHANNEL} channel to the watchers
+     *
+     * @param payload the payload of the notification, as built by the trigger of the event table
+     */
+    void publish(String payload) {
+        Change change;
+        List<Watcher> recipients;
+        synchronized (this) {
+            try {
+                change = Change.fromPayload(sequence + 1, payload);
+            } catch (RuntimeException e) {
+                LOGGER.error("Ignoring invalid change notification " + payload, e);
+                return;
+            }
+            sequence = change.sequence();
+            history.addLast(change);
+            if (history.size() > historySize) {
+                retainedAfter = history.removeFirst().sequence();
+            }
+            recipients = List.copyOf(watchers);
+        }
+        for (Watcher watcher : recipients) {
+            watcher.emit(change);
+        }
+    }
+
+    /**
+     * Called each time the channel is listened to. Changes may have been missed while the connection was lost, so the
+     * watchers fail and the changes before are no longer replayed.
+     */
+    void onListening() {
+        List<Watcher> failed;
+        synchronized (this) {
+            if (!listening) {
+                listening = true;
+                return;
+            }
+            LOGGER.warnf("Listening to the %s channel again, changes may have been missed", CHANNEL);
+            failed = List.copyOf(watchers);
+            history.clear();
+            retainedAfter = sequence;
+        }
+        for (Watcher watcher : failed) {
+            watcher.fail(EventServiceException.RESOURCE_EXHAUSTED.withMessage("Changes may have been missed, watch again"));
+        }
+    }
+
+    @PreDestroy
+    void close() {
+        subscriber.closeAndAwait();
+    }
+
+    /**
+     * Types of change of an event
+     */
+    public enum ChangeType {
+        CREATED,
+        UPDATED,
+        DELETED,
+    }
+
+    /**
+     * Change of an event
+     *
+     * @param sequence  the number of the change in the sequence of the feed
+     * @param type      the type of change
+     * @param id        the id of the event
+     * @param changedAt when the event was changed, as given by the database clock
+     */
+    public record Change(long sequence, ChangeType type, UUID id, Instant changedAt) {
+
+        /**
+         * Parse the payload of a notification of the {@value #CHANNEL} channel
+         *
+         * @param sequence the number of the change in the sequence of the feed
+         * @param payload  the payload, a JSON object with the operation of the trigger, the id of the event and the
+         *                 change time in milliseconds since the epoch
+         * @return the change
+         */
+        static Change fromPayload(long sequence, String payload) {
+            JsonObject json = new JsonObject(payload);
+            ChangeType type = switch (json.getString("operation")) {
+                case "INSERT" -> ChangeType.CREATED;
+                case "UPDATE" -> ChangeType.UPDATED;
+                case "DELETE" -> ChangeType.DELETED;
+                default -> throw new IllegalArgumentException("Unknown operation " + json.getString("operation"));
+            };
+            return new Change(sequence, type, UUID.fromString(json.getString("id")), Instant.ofEpochMilli(json.getLong("changed_at")));
+        }
+    }
+
+    /**
+     * Watcher of the feed, whose changes are emitted one at a time and in order
+     */
+    private static final class Watcher {
+
+        private final MultiEmitter<? super Change> emitter;
+        private final ReentrantLock lock = new ReentrantLock();
+
+        Watcher(MultiEmitter<? super Change> emitter) {
+            this.emitter = emitter;
+        }
+
+        void emit(Change change) {
+            lock.lock();
+            try {
+                emitter.emit(change);
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        void fail(Throwable failure) {
+            lock.lock();
+            try {
+                emitter.fail(failure);
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+}
@@ -1,16 +1,15 @@
 package com.open.su;
 
-import com.open.su.exceptions.EventServiceException;
-import io.grpc.Status;
 import io.quarkus.grpc.GrpcService;
+import io.quarkus.grpc.RegisterInterceptor;
 import io.quarkus.panache.common.Page;
 import io.quarkus.panache.common.Sort;
 import io.smallrye.mutiny.Multi;
 import io.smallrye.mutiny.Uni;
 import jakarta.inject.Inject;
-import org.jboss.logging.Logger;
 
 import java.util.UUID;
+import java.util.concurrent.atomic.AtomicReference;
 
 /**
  * Controller that exposes the gRPC endpoints to manage events.
@@ -19,15 +18,16 @@ import java.util.UUID;
  * @see EventService
  */
 @GrpcService
+@RegisterInterceptor(IdempotencyKeyInterceptor.class)
 public class EventController implements EventGrpc {
 
-    private static final Logger LOGGER = Logger.getLogger(EventController.class);
-
     private final EventService eventService;
+    private final EventResponseCache eventResponseCache;
 
     @Inject
-    public EventController(EventService eventService) {
+    public EventController(EventService eventService, EventResponseCache eventResponseCache) {
         this.eventService = eventService;
+        this.eventResponseCache = eventResponseCache;
     }
 
     /**
@@ -38,80 +38,54 @@ public class EventController implements EventGrpc {
      */
     @Override
     public Multi<ListEventsResponse> listEvents(ListEventsRequest request) {
-        LOGGER.info(request.getSize());
         Page page = Page.of(request.hasPage() ? request.getPage() : 0, request.hasSize() ? request.getSize() : 10);
-        Sort sort = Sort.by(request.hasSort() ? request.getSort() : "name", request.hasOrder() ? Sort.Direction.valueOf(request.getOrder()) : Sort.Direction.Ascending);
 
-        return eventService.listEvents(page, sort)
-                .onFailure().transform(t -> {
-                    if (t instanceof EventServiceException serviceException) {
-                        return (serviceException.toGrpcException());
-                    }
-                    String message = "Unhandled error while listing events";
-                    LOGGER.error(message, t);
-                    return Status.UNKNOWN.withCause(t).withDescription(message).asRuntimeException();
-                })
+        return Uni.createFrom().item(() -> Sort.by(request.hasSort() ? request.getSort() : "name", request.hasOrder() ? EventSortKey.parseDirection(request.getOrder()) : Sort.Direction.Ascending))
+                .onItem().transformToUni(sort -> eventService.listEvents(page, sort))
+                .onFailure().transform(t -> GrpcErrorMapper.toGrpcException(t, "listing events"))
                 .onItem().transformToMulti(events -> Multi.createFrom().iterable(events))
-                .map(Event::toListEventsResponse);
+                .map(eventResponseCache::listEventsResponse);
     }
 
     /**
-     * Get an event by its ID.
+     * Get an event by its ID, its version being sent in the {@value EventVersionInterceptor#EVENT_VERSION} header.
      *
      * @param request the gRPC request
      * @return the get event details response
      */
     @Override
     public Uni<GetEventDetailsResponse> getEventDetails(GetEventDetailsRequest request) {
+        AtomicReference<Long> eventVersion = EventVersionInterceptor.eventVersion();
         return eventService.getEventDetails(UUID.fromString(request.getId()))
-                .onFailure().transform(t -> {
-                    if (t instanceof EventServiceException serviceException) {
-                        return (serviceException.toGrpcException());
-                    }
-                    String message = "Unhandled error while getting event details";
-                    LOGGER.error(message, t);
-                    return Status.UNKNOWN.withCause(t).withDescription(message).asRuntimeException();
-                })
-                .onItem().transform(Event::toGetEventDetailsResponse);
+                .onFailure().transform(t -> GrpcErrorMapper.toGrpcException(t, "getting event details"))
+                .invoke(event -> eventVersion.set(event.version))
+                .onItem().transform(eventResponseCache::getEventDetailsResponse);
     }
 
     /**
-     * Create a new event.
+     * Create a new event, only once per {@value IdempotencyKeyInterceptor#IDEMPOTENCY_KEY} header when present.
      *
      * @param request the gRPC request
      * @return the create event response
      */
     @Override
     public Uni<CreateEventResponse> createEvent(CreateEventRequest request) {
-        return eventService.createEvent(new Event(request))
-                .onFailure().transform(t -> {
-                    if (t instanceof EventServiceException serviceException) {
-                        return (serviceException.toGrpcException());
-                    }
-                    String message = "Unhandled error while creating event";
-                    LOGGER.error(message, t);
-                    return Status.UNKNOWN.withCause(t).withDescription(message).asRuntimeException();
-                })
+        return eventService.createEvent(new Event(request), IdempotencyKeyInterceptor.idempotencyKey())
+                .onFailure().transform(t -> GrpcErrorMapper.toGrpcException(t, "creating event"))
                 .onItem().transform(id -> CreateEventResponse.newBuilder().setId(id.toString()).build());
     }
 
     /**
-     * Update an existing event.
+     * Update an existing event, only if it is at the version of the {@value EventVersionInterceptor#EXPECTED_VERSION}
+     * header when present.
      *
      * @param request the gRPC request
      * @return the update event response
      */
     @Override
     public Uni<UpdateEventResponse> updateEvent(UpdateEventRequest request) {
-        return eventService.updateEvent(new Event(request))
-                .onFailure().transform(t -> {
-                    if (t instanceof EventServiceException serviceException) {
-                        return (serviceException.toGrpcException());
-                    }
-                    String message = "Unhandled error while updating event";
-                    LOGGER.error(message, t);
-                    return Status.UNKNOWN.withCause(t).withDescription(message).asRuntimeException();
-                })
+        return eventService.updateEvent(new Event(request), EventVersionInterceptor.expectedVersion())
+                .onFailure().transform(t -> GrpcErrorMapper.toGrpcException(t, "updating event"))
                 .onItem().transform(id -> UpdateEventResponse.newBuilder().setId(id.toString()).build());
     }
 
@@ -124,14 +98,7 @@ public class EventController implements EventGrpc {
     @Override
     public Uni<DeleteEventResponse> deleteEvent(DeleteEventRequest request) {
         return eventService.deleteEvent(UUID.fromString(request.getId()))
-                .onFailure().transform(t -> {
-                    if (t instanceof EventServiceException serviceException) {
-                        return (serviceException.toGrpcException());
-                    }
-                    String message = "Unhandled error while deleting event";
-                    LOGGER.error(message, t);
-                    return Status.UNKNOWN.withCause(t).withDescription(message).asRuntimeException();
-                })
+                .onFailure().transform(t -> GrpcErrorMapper.toGrpcException(t, "deleting event"))
                 .onItem().transform(id -> DeleteEventResponse.newBuilder().build());
     }
 }
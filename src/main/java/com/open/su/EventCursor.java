@@ -0,0 +1,88 @@
+package com.open.su;
+
+import com.open.su.exceptions.EventServiceException;
+import io.quarkus.panache.common.Sort;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.UUID;
+
+/**
+ * Position in a keyset paginated listing of events: the sort and the sort key value and id of the last event listed.
+ * Clients only see the cursor as an opaque token (see {@link #encode()}).
+ *
+ * @param sortKey   the key the events are sorted by
+ * @param direction the sort direction
+ * @param value     the formatted sort key value of the last event listed, null for the first page
+ * @param id        the id of the last event listed, null for the first page
+ * @see EventService#listEventsAfter(EventCursor, int)
+ */
+record EventCursor(EventSortKey sortKey, Sort.Direction direction, String value, UUID id) {
+
+    private static final String SEPARATOR = "|";
+
+    /**
+     * Create a cursor pointing before the first event
+     *
+     * @param sortKey   the key the events are sorted by
+     * @param direction the sort direction
+     * @return the cursor
+     */
+    static EventCursor first(EventSortKey sortKey, Sort.Direction direction) {
+        return new EventCursor(sortKey, direction, null, null);
+    }
+
+    /**
+     * Decode a cursor encoded with {@link #encode()}
+     *
+     * @param token the encoded cursor
+     * @return the cursor
+     * @throws EventServiceException if the token is not a valid cursor
+     */
+    static EventCursor decode(String token) {
+        try {
+            String[] parts = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8).split("\\" + SEPARATOR, 4);
+            EventSortKey sortKey = EventSortKey.valueOf(parts[0]);
+            EventCursor cursor = new EventCursor(sortKey, Sort.Direction.valueOf(parts[1]), parts[3], UUID.fromString(parts[2]));
+            // Make sure the value can be used in a query
+            sortKey.parse(cursor.value);
+            return cursor;
+        } catch (IllegalArgumentException | IndexOutOfBoundsException e) {
+            throw EventServiceException.INVALID_ARGUMENT.withMessage("Invalid cursor " + token);
+        }
+    }
+
+    /**
+     * Create the cursor pointing after an event of this listing
+     *
+     * @param event the event
+     * @return the cursor
+     */
+    EventCursor after(Event event) {
+        return new EventCursor(sortKey, direction, sortKey.format(event), event.id);
+    }
+
+    /**
+     * @return true if the cursor points before the first event
+     */
+    boolean isFirst() {
+        return id == null;
+    }
+
+    /**
+     * @return the sort key value of the last event listed, typed as the sorted property
+     */
+    Object sortValue() {
+        return sortKey.parse(value);
+    }
+
+    /**
+     * Encode the cursor as an opaque URL safe token
+     *
+     * @return the token
+     */
+    String encode() {
+        String raw = sortKey.name() + SEPARATOR + direction.name() + SEPARATOR + id + SEPARATOR + value;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+}
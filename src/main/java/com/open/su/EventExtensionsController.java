@@ -0,0 +1,227 @@
+package com.open.su;
+
+import com.open.su.exceptions.EventServiceException;
+import io.grpc.Status;
+import io.quarkus.grpc.GrpcService;
+import io.quarkus.panache.common.Page;
+import io.quarkus.panache.common.Sort;
+import io.smallrye.mutiny.Multi;
+import io.smallrye.mutiny.Uni;
+import jakarta.inject.Inject;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Controller that exposes the gRPC endpoints added next to {@link EventGrpc}.
+ *
+ * @see EventExtensionsGrpc
+ * @see EventService
+ */
+@GrpcService
+public class EventExtensionsController implements EventExtensionsGrpc {
+
+    private final EventService eventService;
+    private final EventResponseCache eventResponseCache;
+    private final int batchMaxSize;
+    private final int batchMaxIds;
+
+    @Inject
+    public EventExtensionsController(EventService eventService, EventResponseCache eventResponseCache,
+                                     @ConfigProperty(name = "event-service.batch.max-size", defaultValue = "10000") int batchMaxSize,
+                                     @ConfigProperty(name = "event-service.batch.max-ids", defaultValue = "1000") int batchMaxIds) {
+        this.eventService = eventService;
+        this.eventResponseCache = eventResponseCache;
+        this.batchMaxSize = batchMaxSize;
+        this.batchMaxIds = batchMaxIds;
+    }
+
+    /**
+     * Get a keyset paginated list of events with minimal information.
+     *
+     * @param request the gRPC request
+     * @return the listed events, each with the cursor to resume listing after it
+     */
+    @Override
+    public Multi<ListedEvent> listEventsByCursor(ListEventsByCursorRequest request) {
+        int size = request.hasSize() ? request.getSize() : 10;
+
+        return Uni.createFrom().item(() -> request.hasCursor() ? EventCursor.decode(request.getCursor()) : EventCursor.first(
+                        request.hasSort() ? EventSortKey.fromString(request.getSort()) : EventSortKey.NAME,
+                        request.hasOrder() ? EventSortKey.parseDirection(request.getOrder()) : Sort.Direction.Ascending))
+                .onItem().transformToMulti(cursor -> eventService.listEventsAfter(cursor, size)
+                        .onItem().transformToMulti(events -> Multi.createFrom().iterable(events))
+                        .map(event -> ListedEvent.newBuilder()
+                                .setEvent(eventResponseCache.listEventsResponse(event))
+                                .setCursor(cursor.after(event).encode())
+                                .build()))
+                .onFailure().transform(t -> GrpcErrorMapper.toGrpcException(t, "listing events by cursor"));
+    }
+
+    /**
+     * Create a batch of events. At most {@code event-service.batch.max-size} events are read from the stream, a longer
+     * stream is cancelled and fails with RESOURCE_EXHAUSTED.
+     *
+     * @param request the stream of gRPC requests, one per event
+     * @return the batch create events response, with one result per request
+     */
+    @Override
+    public Uni<BatchCreateEventsResponse> batchCreateEvents(Multi<BatchCreateEventsRequest> request) {
+        // One more event than allowed is enough to reject the batch without reading the rest of the stream
+        return request.select().first(batchMaxSize + 1).collect().asList()
+                .onItem().transformToUni(items -> {
+                    if (items.size() > batchMaxSize) {
+                        return Uni.createFrom().<BatchCreateEventsResponse>failure(EventServiceException.RESOURCE_EXHAUSTED
+                                .withMessage("Batches are limited to " + batchMaxSize + " events"));
+                    }
+                    BatchCreateEventsResult[] results = new BatchCreateEventsResult[items.size()];
+                    List<Event> events = new ArrayList<>(items.size());
+                    List<Integer> positions = new ArrayList<>(items.size());
+                    for (int i = 0; i < items.size(); i++) {
+                        try {
+                            events.add(new Event(items.get(i).getEvent()));
+                            positions.add(i);
+                        } catch (RuntimeException e) {
+                            results[i] = toBatchCreateEventsResult(new EventService.BatchItemResult(null,
+                                    EventServiceException.INVALID_ARGUMENT.withMessage("Invalid event: " + e.getMessage())));
+                        }
+                    }
+
+                    return eventService.createEvents(events)
+                            .onItem().transform(created -> {
+                                for (int i = 0; i < created.size(); i++) {
+                                    results[positions.get(i)] = toBatchCreateEventsResult(created.get(i));
+                                }
+                                return BatchCreateEventsResponse.newBuilder().addAllResults(Arrays.asList(results)).build();
+                            });
+                })
+                .onFailure().transform(t -> GrpcErrorMapper.toGrpcException(t, "creating a batch of events"));
+    }
+
+    /**
+     * Search events by text, best ranked first.
+     *
+     * @param request the gRPC request
+     * @return the matching events, each with the cursor to resume searching after it
+     */
+    @Override
+    public Multi<ListedEvent> searchEvents(SearchEventsRequest request) {
+        int size = request.hasSize() ? request.getSize() : 10;
+
+        return Uni.createFrom().item(() -> request.hasCursor() ? SearchCursor.decode(request.getCursor()) : SearchCursor.first())
+                .onItem().transformToMulti(cursor -> eventService.searchEvents(request.getQuery(), cursor, size)
+                        .onItem().transformToMulti(results -> Multi.createFrom().iterable(results))
+                        .map(result -> ListedEvent.newBuilder()
+                                .setEvent(eventResponseCache.listEventsResponse(result.event()))
+                                .setCursor(new SearchCursor(result.rank(), result.event().id()).encode())
+                                .build()))
+                .onFailure().transform(t -> GrpcErrorMapper.toGrpcException(t, "searching events"));
+    }
+
+    /**
+     * Get a paginated list of the events of an organizer, sorted by start date.
+     *
+     * @param request the gRPC request
+     * @return the events of the page and the number of events of the organizer
+     */
+    @Override
+    public Uni<ListEventsByOrganizerResponse> listEventsByOrganizer(ListEventsByOrganizerRequest request) {
+        Page page = Page.of(request.hasPage() ? request.getPage() : 0, request.hasSize() ? request.getSize() : 10);
+
+        return Uni.createFrom().item(() -> UUID.fromString(request.getOrganizerId()))
+                .onItem().transformToUni(organizerId -> eventService.listEventsByOrganizer(organizerId, page))
+                .onItem().transform(organizerEvents -> {
+                    ListEventsByOrganizerResponse.Builder response = ListEventsByOrganizerResponse.newBuilder()
+                            .setTotal(organizerEvents.total());
+                    for (EventSummary summary : organizerEvents.events()) {
+                        response.addEvents(eventResponseCache.listEventsResponse(summary));
+                    }
+                    return response.build();
+                })
+                .onFailure().transform(t -> GrpcErrorMapper.toGrpcException(t, "listing events by organizer"));
+    }
+
+    /**
+     * Count the events, exactly or estimated.
+     *
+     * @param request the gRPC request
+     * @return the count events response
+     */
+    @Override
+    public Uni<CountEventsResponse> countEvents(CountEventsRequest request) {
+        return eventService.countEvents(request.getEstimated())
+                .onItem().transform(count -> CountEventsResponse.newBuilder().setCount(count).build())
+                .onFailure().transform(t -> GrpcErrorMapper.toGrpcException(t, "counting events"));
+    }
+
+    /**
+     * Get the details of a batch of events. Requests of more than {@code event-service.batch.max-ids} ids fail with
+     * INVALID_ARGUMENT.
+     *
+     * @param request the gRPC request
+     * @return the batch get event details response, with one result per id
+     */
+    @Override
+    public Uni<BatchGetEventDetailsResponse> batchGetEventDetails(BatchGetEventDetailsRequest request) {
+        if (request.getIdsCount() > batchMaxIds) {
+            return Uni.createFrom().<BatchGetEventDetailsResponse>failure(EventServiceException.INVALID_ARGUMENT
+                            .withMessage("Batches are limited to " + batchMaxIds + " ids"))
+                    .onFailure().transform(t -> GrpcErrorMapper.toGrpcException(t, "getting a batch of event details"));
+        }
+        BatchGetEventDetailsResult[] results = new BatchGetEventDetailsResult[request.getIdsCount()];
+        List<UUID> ids = new ArrayList<>(request.getIdsCount());
+        List<Integer> positions = new ArrayList<>(request.getIdsCount());
+        for (int i = 0; i < request.getIdsCount(); i++) {
+            try {
+                ids.add(UUID.fromString(request.getIds(i)));
+                positions.add(i);
+            } catch (IllegalArgumentException e) {
+                results[i] = toBatchGetEventDetailsResult(EventServiceException.INVALID_ARGUMENT.withMessage("Invalid id " + request.getIds(i)));
+            }
+        }
+
+        return eventService.getEventsDetails(ids)
+                .onItem().transform(events -> {
+                    for (int i = 0; i < events.size(); i++) {
+                        Event event = events.get(i);
+                        results[positions.get(i)] = event == null
+                                ? toBatchGetEventDetailsResult(EventServiceException.NOT_FOUND.withMessage("Event with id " + ids.get(i) + " does not exist"))
+                                : BatchGetEventDetailsResult.newBuilder().setEvent(eventResponseCache.getEventDetailsResponse(event)).build();
+                    }
+                    return BatchGetEventDetailsResponse.newBuilder().addAllResults(Arrays.asList(results)).build();
+                })
+                .onFailure().transform(t -> GrpcErrorMapper.toGrpcException(t, "getting a batch of event details"));
+    }
+
+    /**
+     * Convert the result of the creation of an event of a batch to its gRPC message
+     *
+     * @param result the result
+     * @return the gRPC message
+     */
+    static BatchCreateEventsResult toBatchCreateEventsResult(EventService.BatchItemResult result) {
+        if (result.error() == null) {
+            return BatchCreateEventsResult.newBuilder().setId(result.id().toString()).build();
+        }
+        Status status = result.error().toStatus();
+        return BatchCreateEventsResult.newBuilder()
+                .setError(BatchError.newBuilder().setCode(status.getCode().name()).setMessage(status.getDescription()))
+                .build();
+    }
+
+    /**
+     * Convert the error of an event of a batch get to its gRPC message
+     *
+     * @param error why the event was not returned
+     * @return the gRPC message
+     */
+    static BatchGetEventDetailsResult toBatchGetEventDetailsResult(EventServiceException error) {
+        Status status = error.toStatus();
+        return BatchGetEventDetailsResult.newBuilder()
+                .setError(BatchError.newBuilder().setCode(status.getCode().name()).setMessage(status.getDescription()))
+                .build();
+    }
+}
@@ -0,0 +1,177 @@
+package com.open.su;
+
+import com.open.su.exceptions.EventServiceException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Meter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.config.MeterFilter;
+import io.micrometer.core.instrument.distribution.DistributionStatisticConfig;
+import io.smallrye.mutiny.Multi;
+import io.smallrye.mutiny.Uni;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.enterprise.inject.Produces;
+import jakarta.inject.Inject;
+import jakarta.inject.Singleton;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Metrics of the event service, scraped with the other Micrometer metrics on {@code /q/metrics}:
+ * <ul>
+ *     <li>{@value #OPERATION_TIMER}: latency of the operations of {@link EventService}, by method and outcome. The
+ *     streams cancelled by their subscriber have their own outcome, being neither complete nor failed.</li>
+ *     <li>{@value #QUERY_TIMER}: count and latency of the database round trips, by method and outcome</li>
+ *     <li>{@value #ERROR_COUNTER}: failed operations, by method and {@link EventServiceException.Type}</li>
+ * </ul>
+ * Meters are registered upfront so that recording a measure does not look them up.
+ *
+ * @see Measured
+ */
+@ApplicationScoped
+public class EventMetrics {
+
+    static final String OPERATION_TIMER = "event.service.operation";
+    static final String QUERY_TIMER = "event.service.query";
+    static final String ERROR_COUNTER = "event.service.errors";
+
+    /**
+     * Tag value of the errors which are not {@link EventServiceException}
+     */
+    static final String UNKNOWN_ERROR = "UNKNOWN";
+
+    private static final double[] PERCENTILES = {0.5, 0.99, 0.999};
+
+    private final Map<EventService.Method, Timer> operationSuccesses = new EnumMap<>(EventService.Method.class);
+    private final Map<EventService.Method, Timer> operationFailures = new EnumMap<>(EventService.Method.class);
+    private final Map<EventService.Method, Timer> operationCancellations = new EnumMap<>(EventService.Method.class);
+    private final Map<EventService.Method, Timer> querySuccesses = new EnumMap<>(EventService.Method.class);
+    private final Map<EventService.Method, Timer> queryFailures = new EnumMap<>(EventService.Method.class);
+    private final Map<EventService.Method, Map<EventServiceException.Type, Counter>> errors = new EnumMap<>(EventService.Method.class);
+    private final Map<EventService.Method, Counter> unknownErrors = new EnumMap<>(EventService.Method.class);
+
+    @Inject
+    public EventMetrics(MeterRegistry registry) {
+        for (EventService.Method method : EventService.Method.values()) {
+            operationSuccesses.put(method, timer(registry, OPERATION_TIMER, method, "success"));
+            operationFailures.put(method, timer(registry, OPERATION_TIMER, method, "failure"));
+            operationCancellations.put(method, timer(registry, OPERATION_TIMER, method, "cancelled"));
+            querySuccesses.put(method, timer(registry, QUERY_TIMER, method, "success"));
+            queryFailures.put(method, timer(registry, QUERY_TIMER, method, "failure"));
+
+            Map<EventServiceException.Type, Counter> counters = new EnumMap<>(EventServiceException.Type.class);
+            for (EventServiceException.Type type : EventServiceException.Type.values()) {
+                counters.put(type, errorCounter(registry, method, type.name()));
+            }
+            errors.put(method, counters);
+            unknownErrors.put(method, errorCounter(registry, method, UNKNOWN_ERROR));
+        }
+    }
+
+    /**
+     * Publish the latency percentiles of the gRPC calls, recorded by the gRPC server metrics of Quarkus
+     *
+     * @return the meter filter
+     */
+    @Produces
+    @Singleton
+    public MeterFilter grpcServerPercentiles() {
+        return new MeterFilter() {
+            @Override
+            public DistributionStatisticConfig configure(Meter.Id id, DistributionStatisticConfig config) {
+                if (id.getName().startsWith("grpc.server.processing.duration")) {
+                    return DistributionStatisticConfig.builder()
+                            .percentiles(PERCENTILES)
+                            .percentilesHistogram(true)
+                            .build()
+                            .merge(config);
+                }
+                return config;
+            }
+        };
+    }
+
+    /**
+     * Time an operation of the event service, counting its failure if it fails
+     *
+     * @param method    the operation
+     * @param operation the {@link Uni} of the operation, timed from its subscription
+     * @param <T>       the type of item
+     * @return the timed {@link Uni}
+     */
+    public <T> Uni<T> timeOperation(EventService.Method method, Uni<T> operation) {
+        return Uni.createFrom().deferred(() -> {
+            long start = System.nanoTime();
+            return operation.onItemOrFailure().invoke((item, failure) -> recordOperation(method, start, failure));
+        });
+    }
+
+    /**
+     * Time a streaming operation of the event service, until the stream completes, fails or is cancelled
+     *
+     * @param method    the operation
+     * @param operation the {@link Multi} of the operation, timed from its subscription
+     * @param <T>       the type of items
+     * @return the timed {@link Multi}
+     */
+    public <T> Multi<T> timeOperation(EventService.Method method, Multi<T> operation) {
+        return Multi.createFrom().deferred(() -> {
+            long start = System.nanoTime();
+            return operation.onTermination().invoke((failure, cancelled) -> {
+                if (cancelled) {
+                    operationCancellations.get(method).record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+                } else {
+                    recordOperation(method, start, failure);
+                }
+            });
+        });
+    }
+
+    /**
+     * Time a database round trip
+     *
+     * @param method the operation performing the query
+     * @param query  the {@link Uni} of the query, timed from its subscription
+     * @param <T>    the type of result
+     * @return the timed {@link Uni}
+     */
+    public <T> Uni<T> timeQuery(EventService.Method method, Uni<T> query) {
+        return Uni.createFrom().deferred(() -> {
+            long start = System.nanoTime();
+            return query.onItemOrFailure().invoke((item, failure) ->
+                    (failure == null ? querySuccesses : queryFailures).get(method).record(System.nanoTime() - start, TimeUnit.NANOSECONDS));
+        });
+    }
+
+    void recordOperation(EventService.Method method, long start, Throwable failure) {
+        long duration = System.nanoTime() - start;
+        if (failure == null) {
+            operationSuccesses.get(method).record(duration, TimeUnit.NANOSECONDS);
+            return;
+        }
+        operationFailures.get(method).record(duration, TimeUnit.NANOSECONDS);
+        if (failure instanceof EventServiceException serviceException) {
+            errors.get(method).get(serviceException.getType()).increment();
+        } else {
+            unknownErrors.get(method).increment();
+        }
+    }
+
+    static Timer timer(MeterRegistry registry, String name, EventService.Method method, String outcome) {
+        return Timer.builder(name)
+                .tag("method", method.name())
+                .tag("outcome", outcome)
+                .publishPercentiles(PERCENTILES)
+                .publishPercentileHistogram()
+                .register(registry);
+    }
+
+    static Counter errorCounter(MeterRegistry registry, EventService.Method method, String type) {
+        return Counter.builder(ERROR_COUNTER)
+                .tag("method", method.name())
+                .tag("type", type)
+                .register(registry);
+    }
+}
@@ -0,0 +1,113 @@
+package com.open.su;
+
+import io.quarkus.cache.Cache;
+import io.quarkus.cache.CacheName;
+import io.quarkus.cache.CaffeineCache;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Supplier;
+
+/**
+ * Cache of the gRPC messages built from events. Building a message converts the ids and dates of the event to strings,
+ * which costs more than reading the event from the database when listing events, so messages are built once per
+ * version of an event.
+ * <p>
+ * Messages are keyed by event id and {@code version}, which each update increments: an updated event never hits the
+ * message of a previous version, so mutations invalidate nothing and the messages of the previous versions and of the
+ * deleted events expire from the caches.
+ *
+ * @see Event#toListEventsResponse()
+ * @see Event#toGetEventDetailsResponse()
+ */
+@ApplicationScoped
+public class EventResponseCache {
+
+    /**
+     * Name of the cache holding the {@link ListEventsResponse} messages, configured in {@code application.properties}
+     */
+    static final String LIST_RESPONSES_CACHE = "event-list-responses";
+
+    /**
+     * Name of the cache holding the {@link GetEventDetailsResponse} messages, configured in
+     * {@code application.properties}
+     */
+    static final String DETAILS_RESPONSES_CACHE = "event-details-responses";
+
+    private final CaffeineCache listResponses;
+    private final CaffeineCache detailsResponses;
+
+    @Inject
+    public EventResponseCache(@CacheName(LIST_RESPONSES_CACHE) Cache listResponses,
+                              @CacheName(DETAILS_RESPONSES_CACHE) Cache detailsResponses) {
+        this.listResponses = listResponses.as(CaffeineCache.class);
+        this.detailsResponses = detailsResponses.as(CaffeineCache.class);
+    }
+
+    /**
+     * Get the list events response of an event
+     *
+     * @param event the event, with its {@code version}
+     * @return the cached response, built if missing
+     */
+    public ListEventsResponse listEventsResponse(Event event) {
+        return getOrBuild(listResponses, event.id, event.version, event::toListEventsResponse);
+    }
+
+    /**
+     * Get the list events response of an event summary
+     *
+     * @param summary the event summary
+     * @return the cached response, built if missing
+     */
+    public ListEventsResponse listEventsResponse(EventSummary summary) {
+        return getOrBuild(listResponses, summary.id(), summary.version(), summary::toListEventsResponse);
+    }
+
+    /**
+     * Get the get event details response of an event
+     *
+     * @param event the event, with its {@code version}
+     * @return the cached response, built if missing
+     */
+    public GetEventDetailsResponse getEventDetailsResponse(Event event) {
+        return getOrBuild(detailsResponses, event.id, event.version, event::toGetEventDetailsResponse);
+    }
+
+    /**
+     * Get a message from a cache or build and cache it. Messages are built synchronously, so the futures of the cache
+     * are always completed.
+     *
+     * @param cache   the cache
+     * @param id      the id of the event
+     * @param version the version of the event, the message is not cached if unknown
+     * @param builder the message builder
+     * @param <T>     the type of message
+     * @return the message
+     */
+    static <T> T getOrBuild(CaffeineCache cache, UUID id, Long version, Supplier<T> builder) {
+        if (version == null) {
+            return builder.get();
+        }
+
+        Key key = new Key(id, version);
+        CompletableFuture<T> cached = cache.getIfPresent(key);
+        if (cached != null && cached.isDone() && !cached.isCompletedExceptionally()) {
+            return cached.join();
+        }
+        T message = builder.get();
+        cache.put(key, CompletableFuture.completedFuture(message));
+        return message;
+    }
+
+    /**
+     * Key of the cached messages
+     *
+     * @param id      the id of the event
+     * @param version the version of the event
+     */
+    record Key(UUID id, long version) {
+    }
+}
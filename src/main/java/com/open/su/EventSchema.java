@@ -0,0 +1,64 @@
+package com.open.su;
+
+import io.quarkus.runtime.StartupEvent;
+import io.vertx.mutiny.pgclient.PgPool;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.enterprise.event.Observes;
+import org.jboss.logging.Logger;
+
+import java.util.List;
+
+/**
+ * Schema objects of the event table which cannot be declared on {@link Event}, created at startup if missing. The
+ * statements are idempotent, so they run whether the table was just generated by Hibernate or already existed.
+ *
+ * @see EventService
+ */
+@ApplicationScoped
+public class EventSchema {
+
+    private static final Logger LOGGER = Logger.getLogger(EventSchema.class);
+
+    /**
+     * Period of an event, from its start date to its end date included. The bounds are ordered so that an event ending
+     * before its start does not fail the index.
+     */
+    static final String PERIOD = "tsrange(LEAST(start_date, end_date), GREATEST(start_date, end_date), '[]')";
+
+    static final List<String> STATEMENTS = List.of(
+            // Text searched by EventService#searchEvents, the name weighing more than the description and the location
+            "ALTER TABLE event ADD COLUMN IF NOT EXISTS search_vector tsvector GENERATED ALWAYS AS ("
+                    + "setweight(to_tsvector('english', name), 'A') || "
+                    + "setweight(to_tsvector('english', description), 'B') || "
+                    + "setweight(to_tsvector('english', location), 'C')) STORED",
+            "CREATE INDEX IF NOT EXISTS event_search_vector_idx ON event USING GIN (search_vector)",
+            // Periods overlapping the windows of EventService#streamEventsInWindow
+            "CREATE INDEX IF NOT EXISTS event_period_idx ON event USING GIST ((" + PERIOD + "))",
+            // Changes watched by EventChangeFeed, notified when their transaction commits
+            "CREATE OR REPLACE FUNCTION event_notify_change() RETURNS trigger AS $$ BEGIN"
+                    + " PERFORM pg_notify('" + EventChangeFeed.CHANNEL + "', json_build_object("
+                    + "'operation', TG_OP,"
+                    + " 'id', CASE WHEN TG_OP = 'DELETE' THEN OLD.id ELSE NEW.id END,"
+                    + " 'changed_at', floor(extract(epoch FROM clock_timestamp()) * 1000)::bigint)::text);"
+                    + " RETURN NULL;"
+                    + " END $$ LANGUAGE plpgsql",
+            "CREATE OR REPLACE TRIGGER event_notify_change AFTER INSERT OR UPDATE OR DELETE ON event"
+                    + " FOR EACH ROW EXECUTE FUNCTION event_notify_change()",
+            // Changes appended by EventService in the transaction of each change, drained by OutboxRelay
+            "CREATE TABLE IF NOT EXISTS event_outbox (id bigint GENERATED ALWAYS AS IDENTITY PRIMARY KEY,"
+                    + " event_id uuid NOT NULL, operation varchar(10) NOT NULL, payload jsonb, created_at timestamptz NOT NULL DEFAULT now())",
+            "CREATE INDEX IF NOT EXISTS event_outbox_event_id_id_idx ON event_outbox (event_id, id)",
+            // Idempotency keys of EventService#createEvent with the hash of the request that used them, the event is only
+            // null while the creation is in progress
+            "CREATE TABLE IF NOT EXISTS event_idempotency_key (key varchar(" + IdempotencyKeyInterceptor.MAX_LENGTH + ") PRIMARY KEY,"
+                    + " request_hash char(64) NOT NULL, event_id uuid, created_at timestamptz NOT NULL DEFAULT now())",
+            "CREATE INDEX IF NOT EXISTS event_idempotency_key_created_at_idx ON event_idempotency_key (created_at)"
+    );
+
+    void createSchema(@Observes StartupEvent event, PgPool pool) {
+        for (String statement : STATEMENTS) {
+            LOGGER.debugf("Running %s", statement);
+            pool.query(statement).executeAndAwait();
+        }
+    }
+}
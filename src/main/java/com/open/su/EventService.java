@@ -1,15 +1,43 @@
 package com.open.su;
 
 import com.open.su.exceptions.EventServiceException;
+import io.quarkus.cache.Cache;
+import io.quarkus.cache.CacheName;
+import io.quarkus.hibernate.reactive.panache.Panache;
+import io.quarkus.hibernate.reactive.panache.PanacheQuery;
+import io.quarkus.hibernate.reactive.panache.common.WithSession;
 import io.quarkus.hibernate.reactive.panache.common.WithTransaction;
 import io.quarkus.panache.common.Page;
 import io.quarkus.panache.common.Sort;
+import io.smallrye.mutiny.Multi;
 import io.smallrye.mutiny.Uni;
+import io.vertx.mutiny.pgclient.PgPool;
+import io.vertx.mutiny.sqlclient.Row;
+import io.vertx.mutiny.sqlclient.RowSet;
+import io.vertx.mutiny.sqlclient.SqlConnection;
+import io.vertx.mutiny.sqlclient.Tuple;
+import io.vertx.pgclient.PgException;
 import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
 import org.jboss.logging.Logger;
 
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
 import java.util.UUID;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
 
 /**
  * Service for managing events
@@ -18,21 +46,166 @@ import java.util.UUID;
  * @see EventServiceException
  */
 @ApplicationScoped
-@WithTransaction
 public class EventService {
 
+    /**
+     * Name of the cache holding the events returned by {@link #getEventDetails(UUID)}, keyed by event id.
+     * Size, TTL and metrics are configured in {@code application.properties}.
+     */
+    static final String EVENT_DETAILS_CACHE = "event-details";
+
+    /**
+     * Name of the cache holding the ids of the events of each organizer returned by
+     * {@link #listEventsByOrganizer(UUID, Page)}, keyed by organizer id. Size, TTL and metrics are configured in
+     * {@code application.properties}.
+     */
+    static final String ORGANIZER_EVENTS_CACHE = "organizer-events";
+
+    /**
+     * Name of the cache holding the exact number of events returned by {@link #countEvents(boolean)}, which is only
+     * expired, not invalidated by mutations. Size, TTL and metrics are configured in {@code application.properties}.
+     */
+    static final String EVENT_COUNT_CACHE = "event-count";
+
+    /**
+     * Name of the cache holding the ids of the events created by {@link #createEvent(Event, String)}, keyed by
+     * idempotency key. It only spares the lookups of the recent keys, all of them are kept by the
+     * {@code event_idempotency_key} table. Size, TTL and metrics are configured in {@code application.properties}.
+     */
+    static final String IDEMPOTENCY_KEYS_CACHE = "idempotency-keys";
+
     private static final Logger LOGGER = Logger.getLogger(EventService.class);
 
     /**
-     * List events with pagination and sorting
+     * SQLSTATE of the Postgres unique violation errors
+     */
+    private static final String UNIQUE_VIOLATION = "23505";
+
+    /**
+     * Maximum number of parameters of a Postgres statement
+     */
+    private static final int MAX_PARAMETERS = 65535;
+
+    /**
+     * Number of columns inserted per event by {@link #insertEventsOrSkip(List)}, each bound to a parameter
+     */
+    private static final int INSERTED_COLUMNS = 11;
+
+    private final Cache eventDetailsCache;
+    private final Cache organizerEventsCache;
+    private final Cache eventCountCache;
+    private final Cache idempotencyKeysCache;
+    final SingleFlight<UUID, Event> eventDetailsFlight = new SingleFlight<>();
+    private final EventMetrics eventMetrics;
+    private final PgPool pool;
+    private final ReadReplicaRouter readReplicaRouter;
+    private final int streamFetchSize;
+    private final Duration streamIdleTimeout;
+    private final int batchChunkSize;
+    private final int organizerCachedIds;
+
+    @Inject
+    public EventService(@CacheName(EVENT_DETAILS_CACHE) Cache eventDetailsCache, @CacheName(ORGANIZER_EVENTS_CACHE) Cache organizerEventsCache,
+                        @CacheName(EVENT_COUNT_CACHE) Cache eventCountCache, @CacheName(IDEMPOTENCY_KEYS_CACHE) Cache idempotencyKeysCache,
+                        EventMetrics eventMetrics, PgPool pool, ReadReplicaRouter readReplicaRouter,
+                        @ConfigProperty(name = "event-service.stream.fetch-size", defaultValue = "100") int streamFetchSize,
+                        @ConfigProperty(name = "event-service.stream.idle-timeout", defaultValue = "30S") Duration streamIdleTimeout,
+                        @ConfigProperty(name = "event-service.batch.chunk-size", defaultValue = "500") int batchChunkSize,
+                        @ConfigProperty(name = "event-service.organizer.cached-ids", defaultValue = "1000") int organizerCachedIds) {
+        this.eventDetailsCache = eventDetailsCache;
+        this.organizerEventsCache = organizerEventsCache;
+        this.eventCountCache = eventCountCache;
+        this.idempotencyKeysCache = idempotencyKeysCache;
+        this.eventMetrics = eventMetrics;
+        this.pool = pool;
+        this.readReplicaRouter = readReplicaRouter;
+        this.streamFetchSize = streamFetchSize;
+        this.streamIdleTimeout = streamIdleTimeout;
+        // A chunk is inserted by a single statement, whose parameters are limited
+        int maxBatchChunkSize = MAX_PARAMETERS / INSERTED_COLUMNS;
+        this.batchChunkSize = Math.max(1, Math.min(batchChunkSize, maxBatchChunkSize));
+        if (this.batchChunkSize != batchChunkSize) {
+            LOGGER.warnf("event-service.batch.chunk-size must be between 1 and %d, using %d instead of %d", maxBatchChunkSize,
+                    this.batchChunkSize, batchChunkSize);
+        }
+        this.organizerCachedIds = organizerCachedIds;
+    }
+
+    /**
+     * List events with pagination and sorting, from the read replica if possible
      *
      * @param page page number and size
-     * @param sort sort by field and direction
+     * @param sort sort by field and direction, only the {@link EventSortKey} are supported
+     * @return a {@link Uni} with the summaries of the events
+     */
+    @Measured(Method.LIST)
+    @WithSession
+    public Uni<List<EventSummary>> listEvents(Page page, Sort sort) {
+        LOGGER.tracef("Listing events with page %s and sort %s", page, sort);
+        Sort indexedSort;
+        try {
+            indexedSort = EventSortKey.indexedSort(sort);
+        } catch (EventServiceException e) {
+            LOGGER.debugf("[%s] %s", Method.LIST, e.getMessage());
+            return Uni.createFrom().failure(e);
+        }
+
+        Optional<PgPool> replica = readReplicaRouter.replica();
+        Uni<List<EventSummary>> events;
+        if (replica.isPresent()) {
+            Sort.Column column = indexedSort.getColumns().get(0);
+            String sql = "SELECT " + Event.LIST_COLUMNS + " FROM event" + orderBy(EventSortKey.fromString(column.getName()), column.getDirection()) + " LIMIT $1 OFFSET $2";
+            events = eventMetrics.timeQuery(Method.LIST, replica.get().preparedQuery(sql).execute(Tuple.of(page.size, page.index * page.size)))
+                    .onItem().transform(rows -> toEventSummaries(rows));
+        } else {
+            // Only the listed columns are selected, into summaries the session does not manage
+            events = eventMetrics.timeQuery(Method.LIST, Event.<Event>findAll(indexedSort).page(page).project(EventSummary.class).list());
+        }
+
+        return events
+                .onFailure().transform(t -> {
+                    String message = "Failed to list events";
+                    LOGGER.error("[" + Method.LIST + "] " + message, t);
+                    return EventServiceException.DATABASE_ERROR.withCause(t).withMessage(message);
+                });
+    }
+
+    /**
+     * List events with keyset pagination, from the read replica if possible: the page starts right after the cursor,
+     * which is an index seek instead of scanning the events of all the previous pages.
+     *
+     * @param after the cursor of the last event of the previous page
+     * @param size  the number of events of the page
      * @return a {@link Uni} with the list of events (with minimal information)
      */
-    public Uni<List<Event>> listEvents(Page page, Sort sort) {
-        LOGGER.trace("Listing events with page " + page + " and sort " + sort);
-        return Event.<Event>findAll(sort).page(page).list()
+    @Measured(Method.LIST)
+    @WithSession
+    public Uni<List<Event>> listEventsAfter(EventCursor after, int size) {
+        LOGGER.tracef("Listing %d events after cursor %s", size, after);
+        if (size <= 0) {
+            return Uni.createFrom().failure(EventServiceException.INVALID_ARGUMENT.withMessage("Size must be greater than 0"));
+        }
+
+        Optional<PgPool> replica = readReplicaRouter.replica();
+        Uni<List<Event>> events;
+        if (replica.isPresent()) {
+            Tuple arguments = Tuple.tuple();
+            String sql = listQueryAfter(after, null, arguments);
+            events = eventMetrics.timeQuery(Method.LIST, replica.get().preparedQuery(sql).execute(arguments.addValue(size)))
+                    .onItem().transform(rows -> toEvents(rows));
+        } else {
+            Sort sort = Sort.by(after.sortKey().property, after.direction()).and("id", after.direction());
+            PanacheQuery<Event> query;
+            if (after.isFirst()) {
+                query = Event.findAll(sort);
+            } else {
+                String operator = after.direction() == Sort.Direction.Ascending ? ">" : "<";
+                query = Event.find("(" + after.sortKey().property + ", id) " + operator + " (?1, ?2)", sort, after.sortValue(), after.id());
+            }
+            events = eventMetrics.timeQuery(Method.LIST, query.page(0, size).list());
+        }
+
+        return events
                 .onFailure().transform(t -> {
                     String message = "Failed to list events";
                     LOGGER.error("[" + Method.LIST + "] " + message, t);
@@ -41,24 +214,385 @@ public class EventService {
     }
 
     /**
-     * Get event details
+     * Stream events (with minimal information) straight from the database, the read replica if possible. Rows are read
+     * through a cursor, fetching {@code event-service.stream.fetch-size} rows at a time and only when the subscriber
+     * requests them, so the listing is never held in memory whatever its size.
+     *
+     * @param after the cursor of the last event already streamed
+     * @param limit the maximum number of events to stream, all the events if 0
+     * @return a {@link Multi} of the events, which are not managed by Hibernate
+     */
+    @Measured(Method.STREAM)
+    public Multi<Event> streamEvents(EventCursor after, int limit) {
+        LOGGER.tracef("Streaming %d events after cursor %s", limit, after);
+        if (limit < 0) {
+            return Multi.createFrom().failure(EventServiceException.INVALID_ARGUMENT.withMessage("Limit must not be negative"));
+        }
+
+        Tuple arguments = Tuple.tuple();
+        String sql = listQueryAfter(after, null, arguments);
+        // LIMIT NULL is no limit
+        arguments.addValue(limit == 0 ? null : limit);
+
+        return streamQuery(sql, arguments, Method.STREAM);
+    }
+
+    /**
+     * Stream the events whose period, from their start date to their end date, overlaps a time window, sorted by start
+     * date. Like {@link #streamEvents(EventCursor, int)}, rows are read through a cursor as the subscriber requests them.
+     * The overlap is found with the GiST index on the period of the events (see {@link EventSchema}), so the cost
+     * depends on the number of events in the window rather than on the number of events.
+     *
+     * @param start the start of the window
+     * @param end   the end of the window
+     * @param after the cursor of the last event already streamed, sorted by start date
+     * @param limit the maximum number of events to stream, all the events of the window if 0
+     * @return a {@link Multi} of the events, which are not managed by Hibernate
+     */
+    @Measured(Method.WINDOW)
+    public Multi<Event> streamEventsInWindow(Date start, Date end, EventCursor after, int limit) {
+        LOGGER.tracef("Streaming %d events between %s and %s after cursor %s", limit, start, end, after);
+        if (limit < 0) {
+            return Multi.createFrom().failure(EventServiceException.INVALID_ARGUMENT.withMessage("Limit must not be negative"));
+        }
+        if (end.before(start)) {
+            return Multi.createFrom().failure(EventServiceException.INVALID_ARGUMENT.withMessage("End of the window must not be before its start"));
+        }
+        if (after.sortKey() != EventSortKey.START_DATE || after.direction() != Sort.Direction.Ascending) {
+            return Multi.createFrom().failure(EventServiceException.INVALID_ARGUMENT.withMessage("Events of a window are sorted by start date"));
+        }
+
+        Tuple arguments = Tuple.tuple();
+        String sql = listQueryInWindow(start, end, after, arguments);
+        arguments.addValue(limit == 0 ? null : limit);
+
+        return streamQuery(sql, arguments, Method.WINDOW);
+    }
+
+    /**
+     * Stream the events selected by a query through a database cursor, on the read replica if possible. The cursor holds
+     * a connection and a transaction until the stream ends, so a stream whose subscriber does not take an event for
+     * {@code event-service.stream.idle-timeout} fails with {@link EventServiceException#DEADLINE_EXCEEDED}, releasing
+     * them.
+     *
+     * @param sql       the query, selecting the {@link Event#LIST_COLUMNS}
+     * @param arguments the arguments of the query
+     * @param method    the context in which the query is performed (for logging purposes)
+     * @return a {@link Multi} of the events, which are not managed by Hibernate
+     */
+    Multi<Event> streamQuery(String sql, Tuple arguments, Method method) {
+        // Cursors only live in a transaction, it is rolled back when the connection is closed
+        return Multi.createFrom().resourceFromUni(() -> readReplicaRouter.replica().orElse(pool).getConnection(),
+                        connection -> connection.begin()
+                                .onItem().transformToUni(transaction -> connection.prepare(sql))
+                                .onItem().transformToMulti(statement -> statement.createStream(streamFetchSize, arguments).toMulti()))
+                .withFinalizer(SqlConnection::close)
+                .ifNoItem().after(streamIdleTimeout).failWith(() -> {
+                    String message = "No event was taken for " + streamIdleTimeout;
+                    LOGGER.debugf("[%s] %s", method, message);
+                    return EventServiceException.DEADLINE_EXCEEDED.withMessage(message);
+                })
+                .map(Event::new)
+                .onFailure(t -> !(t instanceof EventServiceException)).transform(t -> {
+                    String message = "Failed to stream events";
+                    LOGGER.error("[" + method + "] " + message, t);
+                    return EventServiceException.DATABASE_ERROR.withCause(t).withMessage(message);
+                });
+    }
+
+    /**
+     * Search events by text, from the read replica if possible. The query is matched against the indexed
+     * {@code search_vector} of the events (see {@link EventSchema}), best ranked events first, with keyset pagination on
+     * the rank and the id.
+     *
+     * @param query the words to search, in the web search syntax of Postgres
+     * @param after the cursor of the last event of the previous page
+     * @param size  the number of events of the page
+     * @return a {@link Uni} with the summaries of the matching events and their rank
+     */
+    @Measured(Method.SEARCH)
+    public Uni<List<SearchResult>> searchEvents(String query, SearchCursor after, int size) {
+        LOGGER.tracef("Searching %d events matching %s after cursor %s", size, query, after);
+        if (query == null || query.isBlank()) {
+            return Uni.createFrom().failure(EventServiceException.INVALID_ARGUMENT.withMessage("Query must not be empty"));
+        }
+        if (size <= 0) {
+            return Uni.createFrom().failure(EventServiceException.INVALID_ARGUMENT.withMessage("Size must be greater than 0"));
+        }
+
+        Tuple arguments = Tuple.of(query);
+        StringBuilder sql = new StringBuilder("SELECT " + Event.LIST_COLUMNS + ", ts_rank(search_vector, query) AS rank"
+                + " FROM event, websearch_to_tsquery('english', $1) AS query WHERE search_vector @@ query");
+        if (!after.isFirst()) {
+            sql.append(" AND (ts_rank(search_vector, query), id) < ($2, $3)");
+            arguments.addFloat(after.rank()).addUUID(after.id());
+        }
+        sql.append(" ORDER BY rank DESC, id DESC LIMIT $").append(arguments.size() + 1);
+        arguments.addInteger(size);
+
+        return eventMetrics.timeQuery(Method.SEARCH, readReplicaRouter.replica().orElse(pool).preparedQuery(sql.toString()).execute(arguments))
+                .onFailure().transform(t -> {
+                    String message = "Failed to search events matching " + query;
+                    LOGGER.error("[" + Method.SEARCH + "] " + message, t);
+                    return EventServiceException.DATABASE_ERROR.withCause(t).withMessage(message);
+                })
+                .onItem().transform(rows -> {
+                    List<SearchResult> results = new ArrayList<>(rows.size());
+                    for (Row row : rows) {
+                        results.add(new SearchResult(EventSummary.from(row), row.getFloat("rank")));
+                    }
+                    return results;
+                });
+    }
+
+    /**
+     * List the events of an organizer sorted by start date, from the read replica if possible. The ids of the first
+     * {@code event-service.organizer.cached-ids} events of the organizer and its number of events are read with the
+     * index on the organizer and kept in the {@value #ORGANIZER_EVENTS_CACHE} cache, so a page among them only costs the
+     * lookup of its events by id. The pages after them are read with the index on the organizer and the start date.
+     *
+     * @param organizerId the id of the organizer
+     * @param page        page number and size
+     * @return a {@link Uni} with the summaries of the events of the page and the number of events of the organizer
+     */
+    @Measured(Method.ORGANIZER)
+    public Uni<OrganizerEvents> listEventsByOrganizer(UUID organizerId, Page page) {
+        LOGGER.tracef("Listing events of organizer %s with page %s", organizerId, page);
+        PgPool client = readReplicaRouter.replica().orElse(pool);
+        return organizerEventsCache.<UUID, OrganizerIds>getAsync(organizerId, key -> eventMetrics.timeQuery(Method.ORGANIZER,
+                                client.preparedQuery("SELECT id, count(*) OVER () AS total FROM event WHERE organizer_id = $1 ORDER BY start_date, id LIMIT $2")
+                                        .execute(Tuple.of(key, organizerCachedIds)))
+                        .onItem().transform(rows -> {
+                            List<UUID> ids = new ArrayList<>(rows.size());
+                            long total = 0;
+                            for (Row row : rows) {
+                                ids.add(row.getUUID("id"));
+                                total = row.getLong("total");
+                            }
+                            return new OrganizerIds(List.copyOf(ids), (int) total);
+                        }))
+                .onItem().transformToUni(organizerIds -> {
+                    List<UUID> ids = organizerIds.ids();
+                    long from = (long) page.index * page.size;
+                    if (from + page.size > ids.size() && ids.size() < organizerIds.total()) {
+                        return eventMetrics.timeQuery(Method.ORGANIZER, client.preparedQuery("SELECT " + Event.LIST_COLUMNS
+                                                + " FROM event WHERE organizer_id = $1 ORDER BY start_date, id LIMIT $2 OFFSET $3")
+                                        .execute(Tuple.of(organizerId, page.size, from)))
+                                .onItem().transform(rows -> {
+                                    List<EventSummary> events = new ArrayList<>(rows.size());
+                                    for (Row row : rows) {
+                                        events.add(EventSummary.from(row));
+                                    }
+                                    return new OrganizerEvents(events, organizerIds.total());
+                                });
+                    }
+                    List<UUID> pageIds = ids.subList((int) Math.min(from, ids.size()), (int) Math.min(from + page.size, ids.size()));
+                    if (pageIds.isEmpty()) {
+                        return Uni.createFrom().item(new OrganizerEvents(List.of(), organizerIds.total()));
+                    }
+                    return eventMetrics.timeQuery(Method.ORGANIZER, client.preparedQuery("SELECT " + Event.LIST_COLUMNS + " FROM event WHERE id = ANY($1)")
+                                    .execute(Tuple.of(pageIds.toArray(new UUID[0]))))
+                            .onItem().transform(rows -> {
+                                // Rows come in no particular order, events deleted since the ids were cached are skipped
+                                Map<UUID, EventSummary> summaries = new HashMap<>();
+                                for (Row row : rows) {
+                                    EventSummary summary = EventSummary.from(row);
+                                    summaries.put(summary.id(), summary);
+                                }
+                                List<EventSummary> events = new ArrayList<>(pageIds.size());
+                                for (UUID id : pageIds) {
+                                    EventSummary summary = summaries.get(id);
+                                    if (summary != null) {
+                                        events.add(summary);
+                                    }
+                                }
+                                return new OrganizerEvents(events, organizerIds.total());
+                            });
+                })
+                .onFailure().transform(t -> {
+                    String message = "Failed to list events of organizer " + organizerId;
+                    LOGGER.error("[" + Method.ORGANIZER + "] " + message, t);
+                    return EventServiceException.DATABASE_ERROR.withCause(t).withMessage(message);
+                });
+    }
+
+    /**
+     * Count the events, from the read replica if possible. The exact count scans the event table, so it is kept in the
+     * {@value #EVENT_COUNT_CACHE} cache for a few seconds. The estimated count is read from the statistics of the table
+     * kept by Postgres, scaled to its current size like the query planner does, and costs no scan at all. It falls back
+     * to the exact count when the table has never been analyzed.
+     *
+     * @param estimated whether an estimation is enough
+     * @return a {@link Uni} with the number of events
+     */
+    @Measured(Method.COUNT)
+    public Uni<Long> countEvents(boolean estimated) {
+        LOGGER.tracef("Counting events, estimated %s", estimated);
+        PgPool client = readReplicaRouter.replica().orElse(pool);
+        Uni<Long> count;
+        if (estimated) {
+            count = eventMetrics.timeQuery(Method.COUNT, client.query("SELECT CASE WHEN reltuples < 0 OR relpages = 0 THEN -1"
+                            + " ELSE (reltuples / relpages * (pg_relation_size(oid) / current_setting('block_size')::int))::bigint END AS estimate"
+                            + " FROM pg_class WHERE oid = 'event'::regclass").execute())
+                    .onItem().transform(rows -> rows.iterator().next().getLong("estimate"))
+                    .onItem().transformToUni(estimate -> estimate < 0 ? countEventsExactly(client) : Uni.createFrom().item(estimate));
+        } else {
+            count = countEventsExactly(client);
+        }
+
+        return count
+                .onFailure().transform(t -> {
+                    String message = "Failed to count events";
+                    LOGGER.error("[" + Method.COUNT + "] " + message, t);
+                    return EventServiceException.DATABASE_ERROR.withCause(t).withMessage(message);
+                });
+    }
+
+    /**
+     * Count the events exactly, through the {@value #EVENT_COUNT_CACHE} cache
+     *
+     * @param client the pool to count the events on
+     * @return a {@link Uni} with the number of events
+     */
+    Uni<Long> countEventsExactly(PgPool client) {
+        // The cache holds a single entry
+        return eventCountCache.getAsync(EVENT_COUNT_CACHE, key -> eventMetrics.timeQuery(Method.COUNT,
+                        client.query("SELECT count(*) AS count FROM event").execute())
+                .onItem().transform(rows -> rows.iterator().next().getLong("count")));
+    }
+
+    /**
+     * Get event details, from the read replica if possible. Events are served from the {@value #EVENT_DETAILS_CACHE}
+     * cache when present, the database is only queried on a cache miss.
      *
      * @param id the id of the event
      * @return a {@link Uni} with the event details
      */
+    @Measured(Method.DETAILS)
     public Uni<Event> getEventDetails(UUID id) {
-        LOGGER.trace("Getting event details for event with id " + id);
-        return findEventOrFail(id, Method.DETAILS);
+        LOGGER.tracef("Getting event details for event with id %s", id);
+        return eventDetailsCache.getAsync(id, this::loadEventDetails);
+    }
+
+    /**
+     * Load event details from the database, from the read replica if possible. Concurrent loads of the same event share
+     * a single query, even when caching is disabled.
+     * <p>
+     * The loaded event is cached for every client, so it is read from the primary for
+     * {@code event-service.read-replica.pin-after-write} after each change of the event, whatever the client: a lagging
+     * replica would otherwise fill the cache with the event as it was before the change.
+     *
+     * @param id the id of the event
+     * @return a {@link Uni} with the event details
+     * @see #getEventDetails(UUID)
+     */
+    Uni<Event> loadEventDetails(UUID id) {
+        return eventDetailsFlight.load(id, key -> readReplicaRouter.replica(key)
+                .map(replica -> findEventOnReplicaOrFail(replica, key, Method.DETAILS))
+                .orElseGet(() -> Panache.withSession(() -> findEventOrFail(key, Method.DETAILS))));
+    }
+
+    /**
+     * Get the details of many events, from the read replica if possible. The events are loaded with one query per chunk
+     * of {@code event-service.batch.chunk-size} distinct ids instead of one query per id.
+     *
+     * @param ids the ids of the events, possibly repeated
+     * @return a {@link Uni} with the events in the order of the ids, null for the events that do not exist
+     */
+    @Measured(Method.BATCH_DETAILS)
+    public Uni<List<Event>> getEventsDetails(List<UUID> ids) {
+        LOGGER.tracef("Getting event details for %d events", ids.size());
+        PgPool client = readReplicaRouter.replica().orElse(pool);
+        List<UUID> distinctIds = List.copyOf(new LinkedHashSet<>(ids));
+        List<List<UUID>> chunks = new ArrayList<>();
+        for (int i = 0; i < distinctIds.size(); i += batchChunkSize) {
+            chunks.add(distinctIds.subList(i, Math.min(i + batchChunkSize, distinctIds.size())));
+        }
+
+        return Multi.createFrom().iterable(chunks)
+                .onItem().transformToUniAndConcatenate(chunk -> eventMetrics.timeQuery(Method.BATCH_DETAILS,
+                        client.preparedQuery("SELECT " + Event.DETAILS_COLUMNS + " FROM event WHERE id = ANY($1)")
+                                .execute(Tuple.of(chunk.toArray(new UUID[0])))))
+                .collect().in(HashMap<UUID, Event>::new, (events, rows) -> {
+                    for (Row row : rows) {
+                        Event event = new Event(row);
+                        events.put(event.id, event);
+                    }
+                })
+                .onItem().transform(events -> {
+                    // Rows come in no particular order
+                    List<Event> ordered = new ArrayList<>(ids.size());
+                    for (UUID id : ids) {
+                        ordered.add(events.get(id));
+                    }
+                    return ordered;
+                })
+                .onFailure().transform(t -> {
+                    String message = "Failed to get the details of " + ids.size() + " events";
+                    LOGGER.error("[" + Method.BATCH_DETAILS + "] " + message, t);
+                    return EventServiceException.DATABASE_ERROR.withCause(t).withMessage(message);
+                });
     }
 
     /**
-     * Create an event
+     * Create an event, in a single round trip to the database
      *
      * @param event the event to create
      * @return a {@link Uni} with the id of the created event
+     * @see #createEvent(Event, String)
      */
     public Uni<UUID> createEvent(Event event) {
-        LOGGER.trace("Creating event " + event);
+        return createEvent(event, null);
+    }
+
+    /**
+     * Create an event once per idempotency key: a repeated key returns the id of the event created with it, without
+     * touching the event table, so that a retried creation does not fail with a conflict on its own first attempt.
+     * Recent keys are served from the {@value #IDEMPOTENCY_KEYS_CACHE} cache, the others from the
+     * {@code event_idempotency_key} table, where they are kept for {@code event-service.idempotency.retention}.
+     * <p>
+     * A key is bound to the hash of the request that used it first (see {@link Event#requestHash()}): repeating the key
+     * with another event fails with {@link EventServiceException#FAILED_PRECONDITION} instead of returning an event
+     * that was not requested.
+     *
+     * @param event          the event to create
+     * @param idempotencyKey the idempotency key, null to always create the event
+     * @return a {@link Uni} with the id of the created event
+     */
+    @Measured(Method.CREATE)
+    public Uni<UUID> createEvent(Event event, String idempotencyKey) {
+        LOGGER.tracef("Creating event %s with idempotency key %s", event, idempotencyKey);
+        if (idempotencyKey == null) {
+            return insertEvent(event, null, null)
+                    .call(() -> invalidateOrganizers(Stream.of(event.organizerId)))
+                    .onItem().transform(IdempotentEvent::id);
+        }
+        String requestHash = event.requestHash();
+        // Failures are not cached, a failed creation can be retried with the same key. A replayed key leaves the events
+        // of the organizer unchanged, whether it is served from the cache or from the table.
+        return idempotencyKeysCache.<String, IdempotentEvent>getAsync(idempotencyKey, key -> insertEvent(event, key, requestHash)
+                        .call(created -> created.replayed() ? Uni.createFrom().voidItem() : invalidateOrganizers(Stream.of(event.organizerId))))
+                .onItem().transformToUni(created -> {
+                    if (!created.requestHash().equals(requestHash)) {
+                        String message = "Idempotency key " + idempotencyKey + " was used by another request";
+                        LOGGER.debugf("[%s] %s", Method.CREATE, message);
+                        return Uni.createFrom().failure(EventServiceException.FAILED_PRECONDITION.withMessage(message));
+                    }
+                    return Uni.createFrom().item(created.id());
+                });
+    }
+
+    /**
+     * Insert an event, unless its idempotency key was already used. The key is claimed before inserting the event: a
+     * concurrent creation with the same key waits for the transaction holding it, then returns its event.
+     *
+     * @param event          the event to insert
+     * @param idempotencyKey the idempotency key, null to always insert the event
+     * @param requestHash    the hash of the request, recorded with the key
+     * @return a {@link Uni} with the inserted event, or the event created with the key and the hash of its request
+     */
+    @WithTransaction
+    Uni<IdempotentEvent> insertEvent(Event event, String idempotencyKey, String requestHash) {
         if (event.price <= 0) {
             return Uni.createFrom().failure(EventServiceException.INVALID_ARGUMENT.withMessage("Price must be greater than 0"));
         }
@@ -66,46 +600,338 @@ public class EventService {
         // Make sure the id is null to avoid problems
         event.id = null;
 
-        return checkNameConflict(event, Method.CREATE)
-                .onItem().transformToUni(e -> persistEventOrFail(event, Method.CREATE))
-                .onItem().transform(e -> e == null ? null : e.id);
+        Uni<Boolean> claim = idempotencyKey == null ? Uni.createFrom().item(true) : eventMetrics.timeQuery(Method.CREATE,
+                        Panache.getSession().chain(session -> session.createNativeQuery(
+                                        "INSERT INTO event_idempotency_key (key, request_hash) VALUES (:key, :request_hash) ON CONFLICT DO NOTHING")
+                                .setParameter("key", idempotencyKey)
+                                .setParameter("request_hash", requestHash)
+                                .executeUpdate()))
+                .onItem().transform(inserted -> inserted > 0);
+
+        return claim
+                .onFailure().transform(t -> {
+                    String message = "Failed to claim idempotency key " + idempotencyKey;
+                    LOGGER.error("[" + Method.CREATE + "] " + message, t);
+                    return EventServiceException.DATABASE_ERROR.withCause(t).withMessage(message);
+                })
+                .onItem().transformToUni(claimed -> {
+                    if (!claimed) {
+                        return findIdempotentEventOrFail(idempotencyKey);
+                    }
+                    // The unique constraint on the name detects conflicts, no need to look for them beforehand
+                    return persistEventOrFail(event, Method.CREATE)
+                            .onItem().transform(e -> e == null ? null : e.id)
+                            .call(id -> idempotencyKey == null ? Uni.createFrom().voidItem() : recordIdempotentEvent(idempotencyKey, id))
+                            .invoke(readReplicaRouter.writeRecorder())
+                            .onItem().transform(id -> new IdempotentEvent(id, requestHash, false));
+                });
+    }
+
+    /**
+     * Record the event created with an idempotency key claimed by the current transaction
+     *
+     * @param idempotencyKey the idempotency key
+     * @param id             the id of the created event
+     * @return a {@link Uni} of Void
+     */
+    Uni<Void> recordIdempotentEvent(String idempotencyKey, UUID id) {
+        return eventMetrics.timeQuery(Method.CREATE, Panache.getSession().chain(session -> session.createNativeQuery(
+                                "UPDATE event_idempotency_key SET event_id = :event_id WHERE key = :key")
+                        .setParameter("event_id", id)
+                        .setParameter("key", idempotencyKey)
+                        .executeUpdate()))
+                .onFailure().transform(t -> {
+                    String message = "Failed to record idempotency key " + idempotencyKey;
+                    LOGGER.error("[" + Method.CREATE + "] " + message, t);
+                    return EventServiceException.DATABASE_ERROR.withCause(t).withMessage(message);
+                })
+                .replaceWithVoid();
+    }
+
+    /**
+     * Find the event created with an idempotency key and the hash of the request that created it
+     *
+     * @param idempotencyKey the idempotency key
+     * @return a {@link Uni} with the event created with the key
+     */
+    Uni<IdempotentEvent> findIdempotentEventOrFail(String idempotencyKey) {
+        return eventMetrics.timeQuery(Method.CREATE, Panache.getSession().chain(session -> session.createNativeQuery(
+                                "SELECT event_id, request_hash FROM event_idempotency_key WHERE key = :key", Object[].class)
+                        .setParameter("key", idempotencyKey)
+                        .getSingleResult()))
+                .onFailure().transform(t -> {
+                    String message = "Failed to get the event of idempotency key " + idempotencyKey;
+                    LOGGER.error("[" + Method.CREATE + "] " + message, t);
+                    return EventServiceException.DATABASE_ERROR.withCause(t).withMessage(message);
+                })
+                .onItem().transform(row -> new IdempotentEvent((UUID) row[0], (String) row[1], true))
+                .invoke(created -> LOGGER.debugf("[%s] Idempotency key %s already created event with id %s", Method.CREATE, idempotencyKey, created.id()));
+    }
+
+    /**
+     * Create a batch of events in a single transaction. Events are inserted with multi-row statements of
+     * {@code event-service.batch.chunk-size} events, name conflicts with existing events being detected by the insert
+     * itself ({@code ON CONFLICT DO NOTHING}) rather than by a query per event.
+     *
+     * The cached events of the organizers are invalidated once the transaction is committed.
+     *
+     * @param events the events to create
+     * @return a {@link Uni} with the result of the creation of each event, in the same order as the events
+     */
+    @Measured(Method.BATCH_CREATE)
+    public Uni<List<BatchItemResult>> createEvents(List<Event> events) {
+        LOGGER.tracef("Creating %d events", events.size());
+        return createEventsInTransaction(events)
+                .call(results -> invalidateOrganizers(IntStream.range(0, events.size())
+                        .filter(i -> results.get(i).id() != null)
+                        .mapToObj(i -> events.get(i).organizerId)));
+    }
+
+    /**
+     * Create a batch of events in a transaction
+     *
+     * @param events the events to create
+     * @return a {@link Uni} with the result of the creation of each event, in the same order as the events
+     * @see #createEvents(List)
+     */
+    @WithTransaction
+    Uni<List<BatchItemResult>> createEventsInTransaction(List<Event> events) {
+        EventServiceException[] errors = new EventServiceException[events.size()];
+        Set<String> names = new HashSet<>();
+        List<Event> insertedEvents = new ArrayList<>(events.size());
+        Date now = new Date();
+        for (int i = 0; i < events.size(); i++) {
+            Event event = events.get(i);
+            if (event.price <= 0) {
+                errors[i] = EventServiceException.INVALID_ARGUMENT.withMessage("Price must be greater than 0");
+            } else if (!names.add(event.name)) {
+                errors[i] = EventServiceException.CONFLICT.withMessage("Event with name " + event.name + " is already in the batch");
+            } else {
+                // Ids and timestamps are usually generated by Hibernate, which is bypassed here
+                event.id = UUID.randomUUID();
+                event.createdAt = now;
+                event.updatedAt = now;
+                insertedEvents.add(event);
+            }
+        }
+
+        List<List<Event>> chunks = new ArrayList<>();
+        for (int i = 0; i < insertedEvents.size(); i += batchChunkSize) {
+            chunks.add(insertedEvents.subList(i, Math.min(i + batchChunkSize, insertedEvents.size())));
+        }
+
+        return Multi.createFrom().iterable(chunks)
+                .onItem().transformToUniAndConcatenate(chunk -> eventMetrics.timeQuery(Method.BATCH_CREATE, insertEventsOrSkip(chunk))
+                        .call(ids -> appendToOutbox(EventChangeFeed.ChangeType.CREATED, ids, Method.BATCH_CREATE)))
+                .collect().in(HashSet<UUID>::new, Set::addAll)
+                .onFailure(t -> !(t instanceof EventServiceException)).transform(t -> {
+                    String message = "Failed to create a batch of " + events.size() + " events";
+                    LOGGER.error("[" + Method.BATCH_CREATE + "] " + message, t);
+                    return EventServiceException.DATABASE_ERROR.withCause(t).withMessage(message);
+                })
+                .onItem().transform(insertedIds -> {
+                    List<BatchItemResult> results = new ArrayList<>(events.size());
+                    for (int i = 0; i < events.size(); i++) {
+                        Event event = events.get(i);
+                        if (errors[i] != null) {
+                            results.add(new BatchItemResult(null, errors[i]));
+                        } else if (insertedIds.contains(event.id)) {
+                            results.add(new BatchItemResult(event.id, null));
+                        } else {
+                            results.add(new BatchItemResult(null, EventServiceException.CONFLICT.withMessage("Event with name " + event.name + " already exists")));
+                        }
+                    }
+                    LOGGER.debugf("[%s] Created %d of %d events", Method.BATCH_CREATE, insertedIds.size(), events.size());
+                    return results;
+                })
+                .invoke(readReplicaRouter.writeRecorder());
     }
 
     /**
-     * Update an event
+     * Update an event whatever its version
      *
      * @param event the event to update
      * @return a {@link Uni} with the id of the updated event
+     * @see #updateEvent(Event, Long)
      */
     public Uni<UUID> updateEvent(Event event) {
-        LOGGER.trace("Updating event " + event);
+        return updateEvent(event, null);
+    }
+
+    /**
+     * Update an event with a single statement setting the non-null fields of the given event, no event is loaded. The
+     * statement also returns the previous organizer of the event, whose cached events are invalidated along with the
+     * ones of the new organizer once the transaction is committed.
+     * <p>
+     * Each update increments the version of the event. With an expected version, the statement only updates the event
+     * if it is still at that version, so concurrent updates are detected without holding a lock between reading the
+     * event and updating it.
+     * <p>
+     * The cached event is invalidated once the transaction is committed, so that a concurrent lookup cannot cache the
+     * event as it was before the update.
+     *
+     * @param event           the event to update
+     * @param expectedVersion the version the event must be at, null to update it whatever its version
+     * @return a {@link Uni} with the id of the updated event
+     */
+    @Measured(Method.UPDATE)
+    public Uni<UUID> updateEvent(Event event, Long expectedVersion) {
+        LOGGER.tracef("Updating event %s at version %s", event, expectedVersion);
+        return updateEventInTransaction(event, expectedVersion)
+                .call(previousOrganizer -> invalidateOrganizers(Stream.of(previousOrganizer, event.organizerId)))
+                .call(() -> invalidateEventDetails(event.id))
+                .replaceWith(event.id);
+    }
+
+    /**
+     * Update an event in a transaction
+     *
+     * @param event           the event to update
+     * @param expectedVersion the version the event must be at, null to update it whatever its version
+     * @return a {@link Uni} with the organizer of the event before the update
+     * @see #updateEvent(Event, Long)
+     */
+    @WithTransaction
+    Uni<UUID> updateEventInTransaction(Event event, Long expectedVersion) {
         if (event.price != null && event.price <= 0) {
             return Uni.createFrom().failure(EventServiceException.INVALID_ARGUMENT.withMessage("Price must be greater than 0"));
         }
 
-        return checkNameConflict(event, Method.UPDATE)
-                .onItem().transformToUni(e -> findEventOrFail(event.id, Method.UPDATE)
-                        .onItem().transformToUni(existingEvent -> persistEventOrFail(existingEvent.update(event), Method.UPDATE)))
-                .onItem().transform(e -> e == null ? null : e.id);
+        Map<String, Object> parameters = new HashMap<>();
+        StringBuilder sql = new StringBuilder("UPDATE event SET updated_at = :updated_at, version = event.version + 1");
+        parameters.put("updated_at", new Date());
+        appendAssignment(sql, parameters, "name", event.name);
+        appendAssignment(sql, parameters, "description", event.description);
+        appendAssignment(sql, parameters, "price", event.price);
+        appendAssignment(sql, parameters, "location", event.location);
+        appendAssignment(sql, parameters, "start_date", event.startDate);
+        appendAssignment(sql, parameters, "end_date", event.endDate);
+        appendAssignment(sql, parameters, "organizer_id", event.organizerId);
+        // The joined row is the one before the update
+        sql.append(" FROM event AS previous WHERE event.id = previous.id AND event.id = :id");
+        parameters.put("id", event.id);
+        if (expectedVersion != null) {
+            sql.append(" AND event.version = :version");
+            parameters.put("version", expectedVersion);
+        }
+        sql.append(" RETURNING previous.organizer_id");
+
+        Uni<List<UUID>> update = Panache.getSession().chain(session -> {
+            var query = session.createNativeQuery(sql.toString(), UUID.class);
+            parameters.forEach(query::setParameter);
+            return query.getResultList();
+        });
+
+        return eventMetrics.timeQuery(Method.UPDATE, update)
+                .onFailure(EventService::isUniqueViolation).transform(t -> {
+                    String message = "Event with name " + event.name + " already exists";
+                    LOGGER.debugf("[%s] %s", Method.UPDATE, message);
+                    return EventServiceException.CONFLICT.withMessage(message);
+                })
+                .onFailure(t -> !(t instanceof EventServiceException)).transform(t -> {
+                    String message = "Failed to update event with id " + event.id;
+                    LOGGER.error("[" + Method.UPDATE + "] " + message, t);
+                    return EventServiceException.DATABASE_ERROR.withCause(t).withMessage(message);
+                })
+                .onItem().transformToUni(previousOrganizers -> {
+                    if (!previousOrganizers.isEmpty()) {
+                        LOGGER.debugf("[%s] Updated event with id %s", Method.UPDATE, event.id);
+                        return appendToOutbox(EventChangeFeed.ChangeType.UPDATED, List.of(event.id), Method.UPDATE)
+                                .replaceWith(previousOrganizers.get(0));
+                    }
+                    // A name conflict is reported before the missing event, as when the event was looked up first
+                    Uni<Event> conflict = event.name == null ? Uni.createFrom().nullItem() : checkNameConflict(event, Method.UPDATE);
+                    return conflict
+                            .chain(() -> expectedVersion == null ? Uni.createFrom().item(0L) : countEventOrFail(event.id, Method.UPDATE))
+                            .chain(count -> {
+                                if (count > 0) {
+                                    String message = "Event with id " + event.id + " is not at version " + expectedVersion;
+                                    LOGGER.debugf("[%s] %s", Method.UPDATE, message);
+                                    return Uni.createFrom().<UUID>failure(EventServiceException.FAILED_PRECONDITION.withMessage(message));
+                                }
+                                String message = "Event with id " + event.id + " does not exist";
+                                LOGGER.debugf("[%s] %s", Method.UPDATE, message);
+                                return Uni.createFrom().<UUID>failure(EventServiceException.NOT_FOUND.withMessage(message));
+                            });
+                })
+                .invoke(readReplicaRouter.writeRecorder());
     }
 
     /**
-     * Delete an event
+     * Delete an event with a single statement, no event is loaded. The statement returns the organizer of the event,
+     * whose cached events are invalidated along with the cached event once the transaction is committed.
      *
      * @param id the id of the event to delete
      * @return a {@link Uni} of Void
      */
+    @Measured(Method.DELETE)
     public Uni<Void> deleteEvent(UUID id) {
-        LOGGER.trace("Deleting event with id " + id);
-        return findEventOrFail(id, Method.DELETE)
-                .onItem().transformToUni(existingEvent ->
-                        existingEvent.delete()
-                                .onFailure().transform(t -> {
-                                    String message = "Failed to delete event with id " + id;
-                                    LOGGER.error("[" + Method.DELETE + "] " + message, t);
-                                    return EventServiceException.DATABASE_ERROR.withCause(t).withMessage(message);
-                                })
-                                .onItem().invoke(() -> LOGGER.debug("[" + Method.DELETE + "] " + "Deleted event with id " + id)));
+        LOGGER.tracef("Deleting event with id %s", id);
+        return deleteEventInTransaction(id)
+                .call(organizer -> invalidateOrganizers(Stream.of(organizer)))
+                .call(() -> invalidateEventDetails(id))
+                .replaceWithVoid();
+    }
+
+    /**
+     * Delete an event in a transaction
+     *
+     * @param id the id of the event to delete
+     * @return a {@link Uni} with the organizer of the deleted event
+     * @see #deleteEvent(UUID)
+     */
+    @WithTransaction
+    Uni<UUID> deleteEventInTransaction(UUID id) {
+        Uni<List<UUID>> delete = Panache.getSession()
+                .chain(session -> session.createNativeQuery("DELETE FROM event WHERE id = :id RETURNING organizer_id", UUID.class)
+                        .setParameter("id", id)
+                        .getResultList());
+
+        return eventMetrics.timeQuery(Method.DELETE, delete)
+                .onFailure().transform(t -> {
+                    String message = "Failed to delete event with id " + id;
+                    LOGGER.error("[" + Method.DELETE + "] " + message, t);
+                    return EventServiceException.DATABASE_ERROR.withCause(t).withMessage(message);
+                })
+                .onItem().transformToUni(organizers -> {
+                    if (organizers.isEmpty()) {
+                        String message = "Event with id " + id + " does not exist";
+                        LOGGER.debugf("[%s] %s", Method.DELETE, message);
+                        return Uni.createFrom().<UUID>failure(EventServiceException.NOT_FOUND.withMessage(message));
+                    }
+                    LOGGER.debugf("[%s] Deleted event with id %s", Method.DELETE, id);
+                    return appendToOutbox(EventChangeFeed.ChangeType.DELETED, List.of(id), Method.DELETE)
+                            .replaceWith(organizers.get(0));
+                })
+                .invoke(readReplicaRouter.writeRecorder());
+    }
+
+    /**
+     * Invalidate the cached details of an event once its change is committed. Its load in flight, if any, may have read
+     * the event before the change: it is forgotten first, so that the next lookup runs a new load instead of joining it
+     * and caching the event as it was before the change. The next loads are pinned to the primary, see
+     * {@link #loadEventDetails(UUID)}.
+     *
+     * @param id the id of the event
+     * @return a {@link Uni} of Void
+     */
+    Uni<Void> invalidateEventDetails(UUID id) {
+        readReplicaRouter.recordSharedWrite(id);
+        eventDetailsFlight.forget(id);
+        return eventDetailsCache.invalidate(id);
+    }
+
+    /**
+     * Invalidate the cached events of organizers
+     *
+     * @param organizerIds the ids of the organizers, nulls are ignored
+     * @return a {@link Uni} of Void
+     */
+    Uni<Void> invalidateOrganizers(Stream<UUID> organizerIds) {
+        return Multi.createFrom().iterable(organizerIds.filter(Objects::nonNull).distinct().toList())
+                .onItem().transformToUniAndConcatenate(organizerEventsCache::invalidate)
+                .collect().last()
+                .replaceWithVoid();
     }
 
     /**
@@ -116,7 +942,7 @@ public class EventService {
      * @return a failed {@link Uni} if an event with the same name already exists, otherwise a {@link Uni} with null item
      */
     Uni<Event> checkNameConflict(Event event, Method method) {
-        return Event.<Event>find("name=?1", event.name).firstResult()
+        return eventMetrics.timeQuery(method, Event.<Event>find("name=?1", event.name).firstResult())
                 .onFailure().transform(t -> {
                     String message = "Failed to get event with name " + event.name;
                     LOGGER.error("[" + method + "] " + message, t);
@@ -125,13 +951,29 @@ public class EventService {
                 .onItem().ifNotNull().transformToUni(existingEvent -> {
                     if (!existingEvent.id.equals(event.id)) {
                         String message = "Event with name " + event.name + " already exists";
-                        LOGGER.debug("[" + method + "] " + message);
+                        LOGGER.debugf("[%s] %s", method, message);
                         return Uni.createFrom().failure(EventServiceException.CONFLICT.withMessage(message));
                     }
                     return Uni.createFrom().nullItem();
                 });
     }
 
+    /**
+     * Count the events with an id, to tell whether an event exists
+     *
+     * @param id     the id of the event
+     * @param method the context in which the count is performed (for logging purposes)
+     * @return a {@link Uni} with 1 if the event exists, 0 otherwise
+     */
+    Uni<Long> countEventOrFail(UUID id, Method method) {
+        return eventMetrics.timeQuery(method, Event.count("id", id))
+                .onFailure().transform(t -> {
+                    String message = "Failed to count events with id " + id;
+                    LOGGER.error("[" + method + "] " + message, t);
+                    return EventServiceException.DATABASE_ERROR.withCause(t).withMessage(message);
+                });
+    }
+
     /**
      * Find an event by id or fail
      *
@@ -140,34 +982,263 @@ public class EventService {
      * @return a {@link Uni} with the event, otherwise a failed {@link Uni}
      */
     Uni<Event> findEventOrFail(UUID id, Method method) {
-        return Event.<Event>findById(id)
+        return eventMetrics.timeQuery(method, Event.<Event>findById(id))
+                .onFailure().transform(t -> {
+                    String message = "Failed to get event with id " + id;
+                    LOGGER.error("[" + method + "] " + message, t);
+                    return EventServiceException.DATABASE_ERROR.withCause(t).withMessage(message);
+                })
+                .onItem().ifNull().failWith(() -> {
+                    String message = "Event with id " + id + " does not exist";
+                    LOGGER.debugf("[%s] %s", method, message);
+                    return EventServiceException.NOT_FOUND.withMessage(message);
+                });
+    }
+
+    /**
+     * Find an event by id on the read replica or fail
+     *
+     * @param replica the read replica pool
+     * @param id      the id of the event
+     * @param method  the context in which the find is performed (for logging purposes)
+     * @return a {@link Uni} with the event, which is not managed by Hibernate, otherwise a failed {@link Uni}
+     */
+    Uni<Event> findEventOnReplicaOrFail(PgPool replica, UUID id, Method method) {
+        return eventMetrics.timeQuery(method, replica.preparedQuery("SELECT " + Event.DETAILS_COLUMNS + " FROM event WHERE id = $1").execute(Tuple.of(id)))
                 .onFailure().transform(t -> {
                     String message = "Failed to get event with id " + id;
                     LOGGER.error("[" + method + "] " + message, t);
                     return EventServiceException.DATABASE_ERROR.withCause(t).withMessage(message);
                 })
+                .onItem().transform(rows -> rows.size() == 0 ? null : new Event(rows.iterator().next()))
                 .onItem().ifNull().failWith(() -> {
                     String message = "Event with id " + id + " does not exist";
-                    LOGGER.debug("[" + method + "] " + message);
+                    LOGGER.debugf("[%s] %s", method, message);
                     return EventServiceException.NOT_FOUND.withMessage(message);
                 });
     }
 
     /**
-     * Persist an event or fail
+     * Persist an event or fail. The event is flushed right away so that a name already used by another event fails with
+     * a conflict.
      *
      * @param event  the event to persist
      * @param method the context in which the persist is performed (for logging purposes)
      * @return a {@link Uni} with the persisted event, otherwise a failed {@link Uni}
      */
     Uni<Event> persistEventOrFail(Event event, Method method) {
-        return event.<Event>persist()
-                .onFailure().transform(t -> {
+        return eventMetrics.timeQuery(method, event.<Event>persistAndFlush())
+                .onFailure(EventService::isUniqueViolation).recoverWithUni(t -> {
+                    String message = "Event with name " + event.name + " already exists";
+                    LOGGER.debugf("[%s] %s", method, message);
+                    // The event was never inserted, keep it from being flushed again with the session
+                    return Panache.getSession()
+                            .invoke(session -> session.detach(event))
+                            .chain(() -> Uni.createFrom().<Event>failure(EventServiceException.CONFLICT.withMessage(message)));
+                })
+                .onFailure(t -> !(t instanceof EventServiceException)).transform(t -> {
                     String message = "Failed to persist event with name " + event.name;
                     LOGGER.error("[" + method + "] " + message, t);
                     return EventServiceException.DATABASE_ERROR.withCause(t).withMessage(message);
                 })
-                .onItem().ifNotNull().invoke(existingEvent -> LOGGER.debug("[" + method + "] Persisted event with id " + existingEvent.id));
+                .onItem().ifNotNull().invoke(existingEvent -> LOGGER.debugf("[%s] Persisted event with id %s", method, existingEvent.id))
+                .onItem().ifNotNull().call(persistedEvent -> appendToOutbox(EventChangeFeed.ChangeType.CREATED, List.of(persistedEvent.id), method));
+    }
+
+    /**
+     * Append changes of events to the outbox, in the transaction of the changes. Created and updated events are
+     * recorded with their state at the time of the change, read by the insert itself.
+     *
+     * @param type   the type of change
+     * @param ids    the ids of the changed events, a single one when deleted
+     * @param method the context in which the changes are performed (for logging purposes)
+     * @return a {@link Uni} of Void
+     * @see OutboxRelay
+     */
+    Uni<Void> appendToOutbox(EventChangeFeed.ChangeType type, List<UUID> ids, Method method) {
+        if (ids.isEmpty()) {
+            return Uni.createFrom().voidItem();
+        }
+        // Deleted events can no longer be read, only their ids are recorded
+        String sql = type == EventChangeFeed.ChangeType.DELETED
+                ? "INSERT INTO event_outbox (event_id, operation) VALUES (:id, :operation)"
+                : "INSERT INTO event_outbox (event_id, operation, payload) SELECT id, :operation, to_jsonb(event) - 'search_vector'"
+                + " FROM event WHERE id IN (:ids) ORDER BY id";
+
+        return eventMetrics.timeQuery(method, Panache.getSession().chain(session -> {
+                    var query = session.createNativeQuery(sql).setParameter("operation", type.name());
+                    if (type == EventChangeFeed.ChangeType.DELETED) {
+                        query.setParameter("id", ids.get(0));
+                    } else {
+                        query.setParameter("ids", ids);
+                    }
+                    return query.executeUpdate();
+                }))
+                .onFailure().transform(t -> {
+                    String message = "Failed to append " + ids.size() + " changes to the outbox";
+                    LOGGER.error("[" + method + "] " + message, t);
+                    return EventServiceException.DATABASE_ERROR.withCause(t).withMessage(message);
+                })
+                .replaceWithVoid();
+    }
+
+    /**
+     * Check if a failure was caused by the violation of a unique constraint
+     *
+     * @param t the failure
+     * @return true if one of the causes of the failure is a Postgres unique violation
+     */
+    static boolean isUniqueViolation(Throwable t) {
+        for (Throwable cause = t; cause != null; cause = cause.getCause()) {
+            if (cause instanceof PgException pgException && UNIQUE_VIOLATION.equals(pgException.getSqlState())) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Insert events with a single statement, skipping the ones whose name is already used
+     *
+     * @param events the events to insert, with their ids and timestamps set
+     * @return a {@link Uni} with the ids of the inserted events
+     */
+    Uni<List<UUID>> insertEventsOrSkip(List<Event> events) {
+        StringBuilder sql = new StringBuilder("INSERT INTO event (id, name, description, price, location, start_date, end_date, organizer_id, creator_id, created_at, updated_at) VALUES ");
+        int parameter = 1;
+        for (int i = 0; i < events.size(); i++) {
+            sql.append(i == 0 ? "(" : ", (");
+            for (int column = 0; column < INSERTED_COLUMNS; column++) {
+                sql.append(column == 0 ? "?" : ", ?").append(parameter++);
+            }
+            sql.append(')');
+        }
+        sql.append(" ON CONFLICT (name) DO NOTHING RETURNING id");
+
+        return Panache.getSession().chain(session -> {
+            var query = session.createNativeQuery(sql.toString(), UUID.class);
+            int position = 1;
+            for (Event event : events) {
+                query.setParameter(position++, event.id);
+                query.setParameter(position++, event.name);
+                query.setParameter(position++, event.description);
+                query.setParameter(position++, event.price);
+                query.setParameter(position++, event.location);
+                query.setParameter(position++, event.startDate);
+                query.setParameter(position++, event.endDate);
+                query.setParameter(position++, event.organizerId);
+                query.setParameter(position++, event.creatorId);
+                query.setParameter(position++, event.createdAt);
+                query.setParameter(position++, event.updatedAt);
+            }
+            return query.getResultList();
+        });
+    }
+
+    /**
+     * Build the SQL query listing the events after a cursor, up to a limit
+     *
+     * @param after     the cursor
+     * @param filter    the condition the events must match, using the arguments already added, null for all events
+     * @param arguments the arguments of the query, to which the arguments of the cursor are added. The limit is the
+     *                  next argument to add.
+     * @return the SQL query
+     */
+    static String listQueryAfter(EventCursor after, String filter, Tuple arguments) {
+        StringBuilder sql = new StringBuilder("SELECT " + Event.LIST_COLUMNS + " FROM event");
+        if (filter != null) {
+            sql.append(" WHERE ").append(filter);
+        }
+        if (!after.isFirst()) {
+            sql.append(filter == null ? " WHERE (" : " AND (").append(after.sortKey().column).append(", id) ")
+                    .append(after.direction() == Sort.Direction.Ascending ? ">" : "<")
+                    .append(" ($").append(arguments.size() + 1).append(", $").append(arguments.size() + 2).append(')');
+            arguments.addValue(toSqlValue(after.sortValue())).addUUID(after.id());
+        }
+        return sql.append(orderBy(after.sortKey(), after.direction())).append(" LIMIT $").append(arguments.size() + 1).toString();
+    }
+
+    /**
+     * Build the SQL query listing the events overlapping a time window after a cursor, up to a limit
+     *
+     * @param start     the start of the window
+     * @param end       the end of the window
+     * @param after     the cursor
+     * @param arguments the arguments of the query, to which the window and the cursor are added. The limit is the next
+     *                  argument to add.
+     * @return the SQL query
+     */
+    static String listQueryInWindow(Date start, Date end, EventCursor after, Tuple arguments) {
+        arguments.addValue(toSqlValue(start)).addValue(toSqlValue(end));
+        return listQueryAfter(after, EventSchema.PERIOD + " && tsrange($1, $2, '[]')", arguments);
+    }
+
+    /**
+     * Build the SQL order by clause of a sort key, with the id as tie-breaker
+     *
+     * @param sortKey   the sort key
+     * @param direction the sort direction
+     * @return the order by clause
+     */
+    static String orderBy(EventSortKey sortKey, Sort.Direction direction) {
+        String order = direction == Sort.Direction.Ascending ? " ASC" : " DESC";
+        return " ORDER BY " + sortKey.column + order + ", id" + order;
+    }
+
+    /**
+     * Convert rows of the event table to events
+     *
+     * @param rows the rows
+     * @return the events, which are not managed by Hibernate
+     */
+    static List<Event> toEvents(RowSet<Row> rows) {
+        List<Event> events = new ArrayList<>(rows.size());
+        for (Row row : rows) {
+            events.add(new Event(row));
+        }
+        return events;
+    }
+
+    /**
+     * Convert rows of the event table to event summaries
+     *
+     * @param rows the rows
+     * @return the event summaries
+     */
+    static List<EventSummary> toEventSummaries(RowSet<Row> rows) {
+        List<EventSummary> summaries = new ArrayList<>(rows.size());
+        for (Row row : rows) {
+            summaries.add(EventSummary.from(row));
+        }
+        return summaries;
+    }
+
+    /**
+     * Append the assignment of a column to an update statement if its value is not null
+     *
+     * @param sql        the update statement, up to its assignments
+     * @param parameters the parameters of the update statement, named after the columns
+     * @param column     the column to assign
+     * @param value      the value to assign, nothing is appended if null
+     */
+    static void appendAssignment(StringBuilder sql, Map<String, Object> parameters, String column, Object value) {
+        if (value != null) {
+            sql.append(", ").append(column).append(" = :").append(column);
+            parameters.put(column, value);
+        }
+    }
+
+    /**
+     * Convert a value to a type supported by the reactive SQL client
+     *
+     * @param value the value
+     * @return the value to bind in a {@link Tuple}
+     */
+    static Object toSqlValue(Object value) {
+        if (value instanceof Date date) {
+            return LocalDateTime.ofInstant(date.toInstant(), ZoneId.systemDefault());
+        }
+        return value;
     }
 
     /**
@@ -179,5 +1250,63 @@ public class EventService {
         CREATE,
         UPDATE,
         DELETE,
+        BATCH_CREATE,
+        STREAM,
+        SEARCH,
+        WINDOW,
+        ORGANIZER,
+        COUNT,
+        BATCH_DETAILS,
+    }
+
+    /**
+     * Result of the creation of one event of a batch
+     *
+     * @param id    the id of the created event, null if it was not created
+     * @param error why the event was not created, null if it was
+     * @see #createEvents(List)
+     */
+    public record BatchItemResult(UUID id, EventServiceException error) {
+    }
+
+    /**
+     * Event matching a search
+     *
+     * @param event the summary of the event
+     * @param rank  how well the event matches the search, the higher the better
+     * @see #searchEvents(String, SearchCursor, int)
+     */
+    public record SearchResult(EventSummary event, float rank) {
+    }
+
+    /**
+     * Page of the events of an organizer
+     *
+     * @param events the summaries of the events of the page, sorted by start date
+     * @param total  the number of events of the organizer
+     * @see #listEventsByOrganizer(UUID, Page)
+     */
+    public record OrganizerEvents(List<EventSummary> events, int total) {
+    }
+
+    /**
+     * Event created with an idempotency key
+     *
+     * @param id          the id of the event
+     * @param requestHash the hash of the request that created the event
+     * @param replayed    whether the key was already used, the event being created by an earlier request
+     * @see #createEvent(Event, String)
+     */
+    record IdempotentEvent(UUID id, String requestHash, boolean replayed) {
+    }
+
+    /**
+     * Cached ids of the events of an organizer
+     *
+     * @param ids   the ids of the first events of the organizer, sorted by start date
+     * @param total the number of events of the organizer
+     * @see #listEventsByOrganizer(UUID, Page)
+     */
+    record OrganizerIds(List<UUID> ids, int total) {
     }
 }
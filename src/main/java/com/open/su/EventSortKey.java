@@ -0,0 +1,115 @@
+package com.open.su;
+
+import com.open.su.exceptions.EventServiceException;
+import io.quarkus.panache.common.Sort;
+
+import java.util.Date;
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * Keys events can be sorted by when listing them. Each key is backed by a composite index on the key and the id (used
+ * as tie-breaker) declared on {@link Event}, so listing a page never sorts the whole table.
+ *
+ * @see EventCursor
+ * @see EventService
+ */
+enum EventSortKey {
+    NAME("name", "name", event -> event.name, value -> value),
+    START_DATE("startDate", "start_date", event -> String.valueOf(event.startDate.getTime()), value -> new Date(Long.parseLong(value))),
+    END_DATE("endDate", "end_date", event -> String.valueOf(event.endDate.getTime()), value -> new Date(Long.parseLong(value))),
+    PRICE("price", "price", event -> String.valueOf(event.price), Double::valueOf),
+    LOCATION("location", "location", event -> event.location, value -> value);
+
+    /**
+     * Name of the sorted property of {@link Event}
+     */
+    final String property;
+
+    /**
+     * Name of the sorted column of the event table
+     */
+    final String column;
+
+    private final Function<Event, String> formatter;
+    private final Function<String, Object> parser;
+
+    EventSortKey(String property, String column, Function<Event, String> formatter, Function<String, Object> parser) {
+        this.property = property;
+        this.column = column;
+        this.formatter = formatter;
+        this.parser = parser;
+    }
+
+    /**
+     * Get the sort key matching a property or column name
+     *
+     * @param sort the property or column name
+     * @return the sort key
+     * @throws EventServiceException if events cannot be sorted by this name
+     */
+    static EventSortKey fromString(String sort) {
+        for (EventSortKey key : values()) {
+            if (key.property.equals(sort) || key.column.equals(sort)) {
+                return key;
+            }
+        }
+        throw EventServiceException.INVALID_ARGUMENT.withMessage("Events cannot be sorted by " + sort);
+    }
+
+    /**
+     * Check that a sort can be served by an index and add the id tie-breaker to it
+     *
+     * @param sort a sort by a single key, optionally followed by the id in the same direction
+     * @return the sort by the key and the id, sorted by name if the given sort is empty
+     * @throws EventServiceException if the sort is not supported
+     */
+    static Sort indexedSort(Sort sort) {
+        List<Sort.Column> columns = sort.getColumns();
+        if (columns.isEmpty()) {
+            return Sort.by(NAME.property).and("id");
+        }
+
+        Sort.Column column = columns.get(0);
+        EventSortKey key = fromString(column.getName());
+        if (columns.size() > 2 || (columns.size() == 2 && (!columns.get(1).getName().equals("id") || columns.get(1).getDirection() != column.getDirection()))) {
+            throw EventServiceException.INVALID_ARGUMENT.withMessage("Events can only be sorted by a single key");
+        }
+        return Sort.by(key.property, column.getDirection()).and("id", column.getDirection());
+    }
+
+    /**
+     * Parse a sort direction
+     *
+     * @param order the name of the direction
+     * @return the direction
+     * @throws EventServiceException if the name is not a direction
+     */
+    static Sort.Direction parseDirection(String order) {
+        try {
+            return Sort.Direction.valueOf(order);
+        } catch (IllegalArgumentException e) {
+            throw EventServiceException.INVALID_ARGUMENT.withMessage("Invalid order " + order);
+        }
+    }
+
+    /**
+     * Format the sorted value of an event
+     *
+     * @param event the event
+     * @return the sorted value as a string
+     */
+    String format(Event event) {
+        return formatter.apply(event);
+    }
+
+    /**
+     * Parse a value formatted with {@link #format(Event)}
+     *
+     * @param value the formatted value
+     * @return the value, typed as the sorted property
+     */
+    Object parse(String value) {
+        return parser.apply(value);
+    }
+}
@@ -0,0 +1,116 @@
+package com.open.su;
+
+import com.open.su.exceptions.EventServiceException;
+import io.grpc.stub.StreamObserver;
+import io.quarkus.grpc.GrpcService;
+import io.quarkus.panache.common.Sort;
+import io.smallrye.mutiny.Multi;
+import io.smallrye.mutiny.Uni;
+import jakarta.inject.Inject;
+
+import java.time.Instant;
+import java.time.format.DateTimeParseException;
+import java.util.Date;
+
+/**
+ * Controller that exposes the streaming gRPC endpoints. Unlike the other controllers it implements the plain gRPC
+ * service, which gives access to the flow control of the response streams.
+ *
+ * @see EventStreamGrpcGrpc
+ * @see FlowControlledSubscriber
+ * @see EventService
+ * @see EventChangeFeed
+ */
+@GrpcService
+public class EventStreamController extends EventStreamGrpcGrpc.EventStreamGrpcImplBase {
+
+    private final EventService eventService;
+    private final EventResponseCache eventResponseCache;
+    private final EventChangeFeed eventChangeFeed;
+
+    @Inject
+    public EventStreamController(EventService eventService, EventResponseCache eventResponseCache, EventChangeFeed eventChangeFeed) {
+        this.eventService = eventService;
+        this.eventResponseCache = eventResponseCache;
+        this.eventChangeFeed = eventChangeFeed;
+    }
+
+    /**
+     * Stream all the events with minimal information.
+     *
+     * @param request          the gRPC request
+     * @param responseObserver the observer of the exported events, each with the cursor to resume exporting after it
+     */
+    @Override
+    public void exportEvents(ExportEventsRequest request, StreamObserver<ListedEvent> responseObserver) {
+        int limit = request.hasLimit() ? request.getLimit() : 0;
+
+        Multi<ListedEvent> events = Uni.createFrom().item(() -> request.hasCursor() ? EventCursor.decode(request.getCursor()) : EventCursor.first(
+                        request.hasSort() ? EventSortKey.fromString(request.getSort()) : EventSortKey.NAME,
+                        request.hasOrder() ? EventSortKey.parseDirection(request.getOrder()) : Sort.Direction.Ascending))
+                .onItem().transformToMulti(cursor -> eventService.streamEvents(cursor, limit)
+                        .map(event -> ListedEvent.newBuilder()
+                                .setEvent(eventResponseCache.listEventsResponse(event))
+                                .setCursor(cursor.after(event).encode())
+                                .build()))
+                .onFailure().transform(t -> GrpcErrorMapper.toGrpcException(t, "exporting events"));
+
+        FlowControlledSubscriber.subscribe(events, responseObserver);
+    }
+
+    /**
+     * Stream the events taking place in a time window with minimal information, sorted by start date.
+     *
+     * @param request          the gRPC request
+     * @param responseObserver the observer of the listed events, each with the cursor to resume listing after it
+     */
+    @Override
+    public void listEventsInWindow(ListEventsInWindowRequest request, StreamObserver<ListedEvent> responseObserver) {
+        int limit = request.hasLimit() ? request.getLimit() : 0;
+
+        Multi<ListedEvent> events = Uni.createFrom().item(() -> request.hasCursor() ? EventCursor.decode(request.getCursor()) : EventCursor.first(EventSortKey.START_DATE, Sort.Direction.Ascending))
+                .onItem().transformToMulti(cursor -> eventService.streamEventsInWindow(parseInstant(request.getStart()), parseInstant(request.getEnd()), cursor, limit)
+                        .map(event -> ListedEvent.newBuilder()
+                                .setEvent(eventResponseCache.listEventsResponse(event))
+                                .setCursor(cursor.after(event).encode())
+                                .build()))
+                .onFailure().transform(t -> GrpcErrorMapper.toGrpcException(t, "listing events in a window"));
+
+        FlowControlledSubscriber.subscribe(events, responseObserver);
+    }
+
+    /**
+     * Stream the changes of the events as they happen.
+     *
+     * @param request          the gRPC request
+     * @param responseObserver the observer of the changes
+     */
+    @Override
+    public void watchEvents(WatchEventsRequest request, StreamObserver<EventChange> responseObserver) {
+        Multi<EventChange> changes = eventChangeFeed.watch(request.hasAfter() ? request.getAfter() : null)
+                .map(change -> EventChange.newBuilder()
+                        .setType(EventChangeType.valueOf(change.type().name()))
+                        .setId(change.id().toString())
+                        .setChangedAt(change.changedAt().toString())
+                        .setPosition(eventChangeFeed.position(change))
+                        .build())
+                .onFailure().transform(t -> GrpcErrorMapper.toGrpcException(t, "watching events"));
+
+        FlowControlledSubscriber.subscribe(changes, responseObserver);
+    }
+
+    /**
+     * Parse an ISO-8601 instant
+     *
+     * @param instant the instant
+     * @return the date
+     * @throws EventServiceException if the instant is not valid
+     */
+    static Date parseInstant(String instant) {
+        try {
+            return Date.from(Instant.parse(instant));
+        } catch (DateTimeParseException e) {
+            throw EventServiceException.INVALID_ARGUMENT.withMessage("Invalid instant " + instant);
+        }
+    }
+}
@@ -0,0 +1,67 @@
+package com.open.su;
+
+import io.vertx.mutiny.sqlclient.Row;
+
+import java.util.Date;
+import java.util.UUID;
+
+/**
+ * Read-only projection of an {@link Event} on the columns needed to list events. Unlike entities, summaries are not
+ * managed by the Hibernate session, so listing events neither fills nor dirty-checks its persistence context. Panache
+ * projects the columns on the canonical constructor, the only one of the record.
+ *
+ * @param id          the id of the event
+ * @param name        the name of the event
+ * @param description the description of the event
+ * @param price       the price of the event
+ * @param location    the location of the event
+ * @param startDate   the start date of the event
+ * @param endDate     the end date of the event
+ * @param updatedAt   the update time of the event
+ * @param version     the version of the event, identifying its cached responses
+ * @see EventService#listEvents(io.quarkus.panache.common.Page, io.quarkus.panache.common.Sort)
+ */
+public record EventSummary(UUID id, String name, String description, Double price, String location, Date startDate,
+                           Date endDate, Date updatedAt, Long version) {
+
+    /**
+     * Create the summary of an event
+     *
+     * @param event the event
+     * @return the summary
+     */
+    public static EventSummary from(Event event) {
+        return new EventSummary(event.id, event.name, event.description, event.price, event.location, event.startDate,
+                event.endDate, event.updatedAt, event.version);
+    }
+
+    /**
+     * Create a summary from a row of the event table with the {@link Event#LIST_COLUMNS}
+     *
+     * @param row the row
+     * @return the summary
+     */
+    public static EventSummary from(Row row) {
+        return new EventSummary(row.getUUID("id"), row.getString("name"), row.getString("description"),
+                row.getDouble("price"), row.getString("location"), Event.toDate(row.getLocalDateTime("start_date")),
+                Event.toDate(row.getLocalDateTime("end_date")), Event.toDate(row.getLocalDateTime("updated_at")),
+                row.getLong("version"));
+    }
+
+    /**
+     * Convert the summary to a {@link ListEventsResponse}
+     *
+     * @return the grpc response
+     */
+    public ListEventsResponse toListEventsResponse() {
+        return ListEventsResponse.newBuilder()
+                .setId(this.id.toString())
+                .setName(this.name)
+                .setDescription(this.description)
+                .setPrice(this.price)
+                .setLocation(this.location)
+                .setStartDate(this.startDate.toInstant().toString())
+                .setEndDate(this.endDate.toInstant().toString())
+                .build();
+    }
+}
@@ -0,0 +1,91 @@
+package com.open.su;
+
+import io.grpc.Context;
+import io.grpc.Contexts;
+import io.grpc.ForwardingServerCall;
+import io.grpc.Metadata;
+import io.grpc.ServerCall;
+import io.grpc.ServerCallHandler;
+import io.grpc.ServerInterceptor;
+import io.grpc.Status;
+import io.quarkus.grpc.GlobalInterceptor;
+import jakarta.enterprise.context.ApplicationScoped;
+
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Carries the versions of the events in the gRPC metadata, since the messages of {@link EventGrpc} are defined in the
+ * shared module: the {@value #EXPECTED_VERSION} request header conditions an update on the version of the event, and
+ * the {@value #EVENT_VERSION} response header gives the version of the event returned by
+ * {@link EventController#getEventDetails(GetEventDetailsRequest)}.
+ *
+ * @see EventService#updateEvent(Event, Long)
+ */
+@GlobalInterceptor
+@ApplicationScoped
+public class EventVersionInterceptor implements ServerInterceptor {
+
+    /**
+     * Request header with the version an event must be at to be updated
+     */
+    static final String EXPECTED_VERSION = "x-expected-version";
+
+    /**
+     * Response header with the version of the returned event
+     */
+    static final String EVENT_VERSION = "x-event-version";
+
+    private static final Metadata.Key<String> EXPECTED_VERSION_HEADER = Metadata.Key.of(EXPECTED_VERSION, Metadata.ASCII_STRING_MARSHALLER);
+    private static final Metadata.Key<String> EVENT_VERSION_HEADER = Metadata.Key.of(EVENT_VERSION, Metadata.ASCII_STRING_MARSHALLER);
+    private static final Context.Key<Long> EXPECTED_VERSION_KEY = Context.key(EXPECTED_VERSION);
+    private static final Context.Key<AtomicReference<Long>> EVENT_VERSION_KEY = Context.key(EVENT_VERSION);
+
+    @Override
+    public <Q, R> ServerCall.Listener<Q> interceptCall(ServerCall<Q, R> call, Metadata headers, ServerCallHandler<Q, R> next) {
+        Long expectedVersion = null;
+        String header = headers.get(EXPECTED_VERSION_HEADER);
+        if (header != null) {
+            try {
+                expectedVersion = Long.parseLong(header);
+            } catch (NumberFormatException e) {
+                call.close(Status.INVALID_ARGUMENT.withDescription("Invalid " + EXPECTED_VERSION + " " + header), new Metadata());
+                return new ServerCall.Listener<>() {
+                };
+            }
+        }
+
+        AtomicReference<Long> eventVersion = new AtomicReference<>();
+        ServerCall<Q, R> versionedCall = new ForwardingServerCall.SimpleForwardingServerCall<>(call) {
+            @Override
+            public void sendHeaders(Metadata responseHeaders) {
+                Long version = eventVersion.get();
+                if (version != null) {
+                    responseHeaders.put(EVENT_VERSION_HEADER, version.toString());
+                }
+                super.sendHeaders(responseHeaders);
+            }
+        };
+        Context context = Context.current().withValues(EXPECTED_VERSION_KEY, expectedVersion, EVENT_VERSION_KEY, eventVersion);
+        return Contexts.interceptCall(context, versionedCall, headers, next);
+    }
+
+    /**
+     * Get the expected version of the current call, to be called from the gRPC method itself
+     *
+     * @return the expected version, null if the header is absent
+     */
+    static Long expectedVersion() {
+        return EXPECTED_VERSION_KEY.get();
+    }
+
+    /**
+     * Get the holder of the version to send back with the response of the current call, to be called from the gRPC
+     * method itself. The version must be set before the response is sent.
+     *
+     * @return the holder of the version
+     */
+    static AtomicReference<Long> eventVersion() {
+        AtomicReference<Long> eventVersion = EVENT_VERSION_KEY.get();
+        return eventVersion != null ? eventVersion : new AtomicReference<>();
+    }
+}
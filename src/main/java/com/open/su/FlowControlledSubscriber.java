@@ -0,0 +1,98 @@
+package com.open.su;
+
+import io.grpc.stub.ServerCallStreamObserver;
+import io.grpc.stub.StreamObserver;
+import io.smallrye.mutiny.Multi;
+
+import java.util.concurrent.Flow;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Subscriber forwarding the items of a {@link Multi} to a gRPC server stream while honoring its flow control: an item
+ * is only requested from upstream when the stream is ready to send it, so a slow client slows the source down instead
+ * of piling messages up in the transport buffers.
+ *
+ * @param <T> the type of the streamed messages
+ */
+final class FlowControlledSubscriber<T> implements Flow.Subscriber<T> {
+
+    private final ServerCallStreamObserver<T> observer;
+    private final AtomicBoolean waitingForReady = new AtomicBoolean();
+    private volatile Flow.Subscription subscription;
+    private volatile boolean cancelled;
+
+    private FlowControlledSubscriber(ServerCallStreamObserver<T> observer) {
+        this.observer = observer;
+        observer.setOnReadyHandler(this::onReady);
+        observer.setOnCancelHandler(this::onCancel);
+    }
+
+    /**
+     * Stream the items of a {@link Multi} to a gRPC response observer. Must be called before the gRPC method returns
+     * so that the flow control handlers can be registered.
+     *
+     * @param items    the items to stream
+     * @param observer the response observer
+     * @param <T>      the type of the streamed messages
+     */
+    static <T> void subscribe(Multi<T> items, StreamObserver<T> observer) {
+        if (observer instanceof ServerCallStreamObserver<T> serverObserver) {
+            items.subscribe().withSubscriber(new FlowControlledSubscriber<>(serverObserver));
+        } else {
+            items.subscribe().with(observer::onNext, observer::onError, observer::onCompleted);
+        }
+    }
+
+    @Override
+    public void onSubscribe(Flow.Subscription subscription) {
+        this.subscription = subscription;
+        if (cancelled) {
+            subscription.cancel();
+        } else {
+            requestWhenReady();
+        }
+    }
+
+    @Override
+    public void onNext(T item) {
+        observer.onNext(item);
+        requestWhenReady();
+    }
+
+    @Override
+    public void onError(Throwable throwable) {
+        observer.onError(throwable);
+    }
+
+    @Override
+    public void onComplete() {
+        observer.onCompleted();
+    }
+
+    /**
+     * Request the next item now if the stream is ready, otherwise let {@link #onReady()} request it. The flag is set
+     * before checking readiness so that a concurrent ready notification cannot be missed, and cleared atomically so
+     * that only one of them requests the item.
+     */
+    private void requestWhenReady() {
+        waitingForReady.set(true);
+        if (observer.isReady() && waitingForReady.compareAndSet(true, false)) {
+            subscription.request(1);
+        }
+    }
+
+    private void onReady() {
+        Flow.Subscription current = subscription;
+        if (current != null && waitingForReady.compareAndSet(true, false)) {
+            current.request(1);
+        }
+    }
+
+    private void onCancel() {
+        cancelled = true;
+        Flow.Subscription current = subscription;
+        if (current != null) {
+            current.cancel();
+        }
+    }
+}
@@ -0,0 +1,35 @@
+package com.open.su;
+
+import com.open.su.exceptions.EventServiceException;
+import io.grpc.Status;
+import org.jboss.logging.Logger;
+
+/**
+ * Maps the failures of the controllers to gRPC exceptions.
+ *
+ * @see EventServiceException#toGrpcException()
+ */
+final class GrpcErrorMapper {
+
+    private static final Logger LOGGER = Logger.getLogger(GrpcErrorMapper.class);
+
+    private GrpcErrorMapper() {
+    }
+
+    /**
+     * Map a failure to a gRPC exception. Failures of the event service carry their own status, any other failure is
+     * unexpected and logged.
+     *
+     * @param t      the failure
+     * @param action what the controller was doing, e.g. "listing events" (for logging purposes)
+     * @return the gRPC exception
+     */
+    static Throwable toGrpcException(Throwable t, String action) {
+        if (t instanceof EventServiceException serviceException) {
+            return serviceException.toGrpcException();
+        }
+        String message = "Unhandled error while " + action;
+        LOGGER.error(message, t);
+        return Status.UNKNOWN.withCause(t).withDescription(message).asRuntimeException();
+    }
+}
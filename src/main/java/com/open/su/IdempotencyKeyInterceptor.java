@@ -0,0 +1,60 @@
+package com.open.su;
+
+import io.grpc.Context;
+import io.grpc.Contexts;
+import io.grpc.Metadata;
+import io.grpc.ServerCall;
+import io.grpc.ServerCallHandler;
+import io.grpc.ServerInterceptor;
+import io.grpc.Status;
+import jakarta.enterprise.context.ApplicationScoped;
+
+/**
+ * Carries the idempotency key of a creation in the gRPC metadata, since {@link CreateEventRequest} is defined in the
+ * shared module: a retried {@link EventController#createEvent(CreateEventRequest)} sending the same
+ * {@value #IDEMPOTENCY_KEY} header as its first attempt gets the event created by that attempt.
+ * <p>
+ * The interceptor is registered on {@link EventController} only, and the header is ignored by its other methods.
+ *
+ * @see EventService#createEvent(Event, String)
+ */
+@ApplicationScoped
+public class IdempotencyKeyInterceptor implements ServerInterceptor {
+
+    /**
+     * Request header with the idempotency key, chosen by the client, e.g. a random UUID per event to create
+     */
+    static final String IDEMPOTENCY_KEY = "idempotency-key";
+
+    /**
+     * Maximum length of an idempotency key, as stored by the {@code event_idempotency_key} table
+     */
+    static final int MAX_LENGTH = 255;
+
+    private static final Metadata.Key<String> IDEMPOTENCY_KEY_HEADER = Metadata.Key.of(IDEMPOTENCY_KEY, Metadata.ASCII_STRING_MARSHALLER);
+    private static final Context.Key<String> IDEMPOTENCY_KEY_KEY = Context.key(IDEMPOTENCY_KEY);
+    private static final String CREATE_EVENT = EventGrpcGrpc.getCreateEventMethod().getFullMethodName();
+
+    @Override
+    public <Q, R> ServerCall.Listener<Q> interceptCall(ServerCall<Q, R> call, Metadata headers, ServerCallHandler<Q, R> next) {
+        String idempotencyKey = headers.get(IDEMPOTENCY_KEY_HEADER);
+        if (idempotencyKey == null || !call.getMethodDescriptor().getFullMethodName().equals(CREATE_EVENT)) {
+            return next.startCall(call, headers);
+        }
+        if (idempotencyKey.isEmpty() || idempotencyKey.length() > MAX_LENGTH) {
+            call.close(Status.INVALID_ARGUMENT.withDescription("Invalid " + IDEMPOTENCY_KEY + ", it must have 1 to " + MAX_LENGTH + " characters"), new Metadata());
+            return new ServerCall.Listener<>() {
+            };
+        }
+        return Contexts.interceptCall(Context.current().withValue(IDEMPOTENCY_KEY_KEY, idempotencyKey), call, headers, next);
+    }
+
+    /**
+     * Get the idempotency key of the current call, to be called from the gRPC method itself
+     *
+     * @return the idempotency key, null if the header is absent
+     */
+    static String idempotencyKey() {
+        return IDEMPOTENCY_KEY_KEY.get();
+    }
+}
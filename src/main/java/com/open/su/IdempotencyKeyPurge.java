@@ -0,0 +1,59 @@
+package com.open.su;
+
+import io.quarkus.scheduler.Scheduled;
+import io.smallrye.mutiny.Uni;
+import io.vertx.mutiny.pgclient.PgPool;
+import io.vertx.mutiny.sqlclient.Tuple;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.jboss.logging.Logger;
+
+import java.time.Duration;
+import java.time.OffsetDateTime;
+
+/**
+ * Deletes the idempotency keys of {@link EventService#createEvent(Event, String)} older than
+ * {@code event-service.idempotency.retention}, every {@code event-service.idempotency.purge-every}. Creations retried
+ * after the retention create their event again.
+ */
+@ApplicationScoped
+public class IdempotencyKeyPurge {
+
+    private static final Logger LOGGER = Logger.getLogger(IdempotencyKeyPurge.class);
+
+    private final PgPool pool;
+    private final Duration retention;
+
+    @Inject
+    public IdempotencyKeyPurge(PgPool pool,
+                               @ConfigProperty(name = "event-service.idempotency.retention", defaultValue = "24H") Duration retention) {
+        this.pool = pool;
+        this.retention = retention;
+    }
+
+    /**
+     * Purge the expired keys on schedule, a failed run is logged and the keys are purged by the next one
+     *
+     * @return a {@link Uni} of Void
+     */
+    @Scheduled(every = "${event-service.idempotency.purge-every}", concurrentExecution = Scheduled.ConcurrentExecution.SKIP)
+    Uni<Void> scheduledPurge() {
+        return purge()
+                .onFailure().invoke(t -> LOGGER.error("Failed to purge the idempotency keys", t))
+                .onFailure().recoverWithNull()
+                .replaceWithVoid();
+    }
+
+    /**
+     * Delete the keys created before the retention
+     *
+     * @return a {@link Uni} with the number of deleted keys
+     */
+    public Uni<Integer> purge() {
+        return pool.preparedQuery("DELETE FROM event_idempotency_key WHERE created_at < $1")
+                .execute(Tuple.of(OffsetDateTime.now().minus(retention)))
+                .onItem().transform(rows -> rows.rowCount())
+                .invoke(count -> LOGGER.debugf("Purged %d idempotency keys", count));
+    }
+}
@@ -0,0 +1,26 @@
+package com.open.su;
+
+import io.quarkus.arc.DefaultBean;
+import io.smallrye.mutiny.Uni;
+import jakarta.enterprise.context.ApplicationScoped;
+import org.jboss.logging.Logger;
+
+import java.util.List;
+
+/**
+ * Outbox sink logging each change, used unless another {@link OutboxSink} is declared
+ */
+@DefaultBean
+@ApplicationScoped
+public class LoggingOutboxSink implements OutboxSink {
+
+    private static final Logger LOGGER = Logger.getLogger(LoggingOutboxSink.class);
+
+    @Override
+    public Uni<Void> publish(List<OutboxEntry> entries) {
+        for (OutboxEntry entry : entries) {
+            LOGGER.infof("[%d] %s event %s at %s: %s", entry.id(), entry.type(), entry.eventId(), entry.createdAt(), entry.payload());
+        }
+        return Uni.createFrom().voidItem();
+    }
+}
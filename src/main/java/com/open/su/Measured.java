@@ -0,0 +1,28 @@
+package com.open.su;
+
+import jakarta.enterprise.util.Nonbinding;
+import jakarta.interceptor.InterceptorBinding;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Record the latency and the errors of an operation of {@link EventService} returning a {@link io.smallrye.mutiny.Uni}
+ * or a {@link io.smallrye.mutiny.Multi}.
+ *
+ * @see MeasuredInterceptor
+ * @see EventMetrics
+ */
+@InterceptorBinding
+@Retention(RetentionPolicy.RUNTIME)
+@Target({ElementType.METHOD, ElementType.TYPE})
+@interface Measured {
+
+    /**
+     * @return the operation, tagging the recorded metrics
+     */
+    @Nonbinding
+    EventService.Method value();
+}
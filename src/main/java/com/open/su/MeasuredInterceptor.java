@@ -0,0 +1,41 @@
+package com.open.su;
+
+import io.smallrye.mutiny.Multi;
+import io.smallrye.mutiny.Uni;
+import jakarta.annotation.Priority;
+import jakarta.inject.Inject;
+import jakarta.interceptor.AroundInvoke;
+import jakarta.interceptor.Interceptor;
+import jakarta.interceptor.InvocationContext;
+
+/**
+ * Interceptor of the {@link Measured} operations. It runs before the session and transaction interceptors, so the
+ * recorded latency includes opening the session and committing the transaction.
+ *
+ * @see EventMetrics
+ */
+@Measured(EventService.Method.LIST)
+@Interceptor
+@Priority(Interceptor.Priority.PLATFORM_BEFORE)
+class MeasuredInterceptor {
+
+    private final EventMetrics eventMetrics;
+
+    @Inject
+    MeasuredInterceptor(EventMetrics eventMetrics) {
+        this.eventMetrics = eventMetrics;
+    }
+
+    @AroundInvoke
+    Object measure(InvocationContext context) throws Exception {
+        EventService.Method method = context.getMethod().getAnnotation(Measured.class).value();
+        Object result = context.proceed();
+        if (result instanceof Uni<?> uni) {
+            return eventMetrics.timeOperation(method, uni);
+        }
+        if (result instanceof Multi<?> multi) {
+            return eventMetrics.timeOperation(method, multi);
+        }
+        return result;
+    }
+}
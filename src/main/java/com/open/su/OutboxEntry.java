@@ -0,0 +1,18 @@
+package com.open.su;
+
+import java.time.Instant;
+import java.util.UUID;
+
+/**
+ * Change of an event recorded in the outbox.
+ *
+ * @param id        the id of the entry, increasing with the changes of an event. Entries may be published again if
+ *                  the relay fails after publishing them, consumers deduplicate them on this id.
+ * @param eventId   the id of the changed event
+ * @param type      the type of change
+ * @param payload   the event as a JSON object after the change, null if deleted
+ * @param createdAt when the change was recorded
+ * @see OutboxRelay
+ */
+public record OutboxEntry(long id, UUID eventId, EventChangeFeed.ChangeType type, String payload, Instant createdAt) {
+}
@@ -0,0 +1,104 @@
+package com.open.su;
+
+import io.quarkus.scheduler.Scheduled;
+import io.smallrye.mutiny.Multi;
+import io.smallrye.mutiny.Uni;
+import io.vertx.mutiny.pgclient.PgPool;
+import io.vertx.mutiny.sqlclient.Row;
+import io.vertx.mutiny.sqlclient.Tuple;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.jboss.logging.Logger;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * Relays the changes of the events appended to the outbox by {@link EventService} to the {@link OutboxSink}, outside
+ * of the RPCs: the RPCs only append to the outbox in their transaction.
+ * <p>
+ * Every {@code event-service.outbox.relay-every}, the outbox is drained in batches of
+ * {@code event-service.outbox.batch-size} entries, each locked, published and deleted in a transaction. Locked entries
+ * are skipped, so the relays of several nodes share the work, and a batch only takes the oldest entry of each event, so
+ * the changes of an event are published in order even by different nodes.
+ *
+ * @see OutboxEntry
+ */
+@ApplicationScoped
+public class OutboxRelay {
+
+    private static final Logger LOGGER = Logger.getLogger(OutboxRelay.class);
+
+    /**
+     * Oldest entries of the outbox not locked by another relay, at most one per event
+     */
+    static final String BATCH_QUERY = "SELECT id, event_id, operation, payload::text AS payload, created_at FROM event_outbox AS entry"
+            + " WHERE NOT EXISTS (SELECT 1 FROM event_outbox AS previous WHERE previous.event_id = entry.event_id AND previous.id < entry.id)"
+            + " ORDER BY id LIMIT $1 FOR UPDATE SKIP LOCKED";
+
+    private final PgPool pool;
+    private final OutboxSink sink;
+    private final int batchSize;
+
+    @Inject
+    public OutboxRelay(PgPool pool, OutboxSink sink,
+                       @ConfigProperty(name = "event-service.outbox.batch-size", defaultValue = "100") int batchSize) {
+        this.pool = pool;
+        this.sink = sink;
+        this.batchSize = batchSize;
+    }
+
+    /**
+     * Drain the outbox on schedule, a failed run is logged and the remaining entries are relayed by the next one
+     *
+     * @return a {@link Uni} of Void
+     */
+    @Scheduled(every = "${event-service.outbox.relay-every}", concurrentExecution = Scheduled.ConcurrentExecution.SKIP)
+    Uni<Void> scheduledRelay() {
+        return relay()
+                .onFailure().invoke(t -> LOGGER.error("Failed to relay the outbox", t))
+                .onFailure().recoverWithNull()
+                .replaceWithVoid();
+    }
+
+    /**
+     * Drain the outbox, until a batch is empty
+     *
+     * @return a {@link Uni} with the number of relayed entries
+     */
+    public Uni<Integer> relay() {
+        return Multi.createBy().repeating().uni(this::relayBatch).whilst(count -> count > 0)
+                .collect().with(Collectors.summingInt(Integer::intValue))
+                .invoke(count -> {
+                    if (count > 0) {
+                        LOGGER.debugf("Relayed %d outbox entries", count);
+                    }
+                });
+    }
+
+    /**
+     * Lock, publish and delete a batch of entries in a transaction
+     *
+     * @return a {@link Uni} with the number of relayed entries
+     */
+    Uni<Integer> relayBatch() {
+        return pool.withTransaction(connection -> connection.preparedQuery(BATCH_QUERY).execute(Tuple.of(batchSize))
+                .onItem().transformToUni(rows -> {
+                    List<OutboxEntry> entries = new ArrayList<>(rows.size());
+                    for (Row row : rows) {
+                        entries.add(new OutboxEntry(row.getLong("id"), row.getUUID("event_id"),
+                                EventChangeFeed.ChangeType.valueOf(row.getString("operation")), row.getString("payload"),
+                                row.getOffsetDateTime("created_at").toInstant()));
+                    }
+                    if (entries.isEmpty()) {
+                        return Uni.createFrom().item(0);
+                    }
+                    Long[] ids = entries.stream().map(OutboxEntry::id).toArray(Long[]::new);
+                    return sink.publish(entries)
+                            .chain(() -> connection.preparedQuery("DELETE FROM event_outbox WHERE id = ANY($1)").execute(Tuple.of(ids)))
+                            .replaceWith(entries.size());
+                }));
+    }
+}
@@ -0,0 +1,24 @@
+package com.open.su;
+
+import io.smallrye.mutiny.Uni;
+
+import java.util.List;
+
+/**
+ * Destination of the changes relayed from the outbox. The default sink logs them, declare another bean implementing
+ * this interface to publish them elsewhere.
+ *
+ * @see OutboxRelay
+ * @see LoggingOutboxSink
+ */
+public interface OutboxSink {
+
+    /**
+     * Publish a batch of changes. The entries are removed from the outbox once the returned {@link Uni} completes, and
+     * published again by a later batch if it fails.
+     *
+     * @param entries the entries, in the order of their ids
+     * @return a {@link Uni} of Void
+     */
+    Uni<Void> publish(List<OutboxEntry> entries);
+}
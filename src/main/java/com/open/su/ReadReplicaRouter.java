@@ -0,0 +1,114 @@
+package com.open.su;
+
+import io.quarkus.reactive.datasource.ReactiveDataSource;
+import io.vertx.mutiny.pgclient.PgPool;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.jboss.logging.Logger;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Routes read-only queries to the {@value #REPLICA} datasource when {@code event-service.read-replica.enabled}.
+ * <p>
+ * Replicas lag behind the primary, so the reads of a client are pinned to the primary for
+ * {@code event-service.read-replica.pin-after-write} after each of its writes to let it read its own writes. The time
+ * of its last write travels with its calls (see {@link ReadYourWritesInterceptor}), the reads of the other clients are
+ * not pinned.
+ * <p>
+ * The reads shared between clients, such as the loads of the cached events, are pinned to the primary for the same
+ * time after each write of their key, whatever the client: a lagging replica would otherwise serve the value before
+ * the write to every client.
+ *
+ * @see EventService
+ */
+@ApplicationScoped
+public class ReadReplicaRouter {
+
+    /**
+     * Name of the reactive datasource of the read replica
+     */
+    static final String REPLICA = "replica";
+
+    private static final Logger LOGGER = Logger.getLogger(ReadReplicaRouter.class);
+
+    private final PgPool replica;
+    private final long pinAfterWriteMillis;
+    private final Map<Object, Long> sharedWrites = new ConcurrentHashMap<>();
+
+    @Inject
+    public ReadReplicaRouter(@ReactiveDataSource(REPLICA) PgPool replica,
+                             @ConfigProperty(name = "event-service.read-replica.enabled", defaultValue = "false") boolean enabled,
+                             @ConfigProperty(name = "event-service.read-replica.pin-after-write", defaultValue = "1S") Duration pinAfterWrite) {
+        this.replica = enabled ? replica : null;
+        this.pinAfterWriteMillis = pinAfterWrite.toMillis();
+        if (enabled) {
+            LOGGER.infof("Routing reads to the read replica, pinned to the primary for %s after the writes of a client", pinAfterWrite);
+        }
+    }
+
+    /**
+     * Get the pool the reads of the current call should be sent to
+     *
+     * @return the replica pool, empty if no replica is enabled or if the reads of the client are pinned to the primary
+     */
+    Optional<PgPool> replica() {
+        if (replica == null) {
+            return Optional.empty();
+        }
+        ReadYourWritesInterceptor.LastWrite lastWrite = ReadYourWritesInterceptor.lastWrite();
+        if (lastWrite != null && System.currentTimeMillis() - lastWrite.time() < pinAfterWriteMillis) {
+            return Optional.empty();
+        }
+        return Optional.of(replica);
+    }
+
+    /**
+     * Get the pool a read shared between clients should be sent to
+     *
+     * @param key the key of the read, as given to {@link #recordSharedWrite(Object)}
+     * @return the replica pool, empty if no replica is enabled, if the key was written within the pin or if the reads
+     * of the client are pinned to the primary
+     */
+    Optional<PgPool> replica(Object key) {
+        Long written = sharedWrites.get(key);
+        if (written != null && System.currentTimeMillis() - written < pinAfterWriteMillis) {
+            return Optional.empty();
+        }
+        return replica();
+    }
+
+    /**
+     * Record a write of the key of a read shared between clients, once it is committed. The writes older than the pin
+     * are dropped, so only the keys written within the pin are kept.
+     *
+     * @param key the key of the read
+     */
+    void recordSharedWrite(Object key) {
+        if (replica == null) {
+            return;
+        }
+        long now = System.currentTimeMillis();
+        sharedWrites.values().removeIf(written -> now - written >= pinAfterWriteMillis);
+        sharedWrites.put(key, now);
+    }
+
+    /**
+     * Get the recorder of a write of the current call, to be run once the write is done. The write pins the next reads
+     * of the client to the primary.
+     *
+     * @return the recorder, which does nothing outside a gRPC call
+     */
+    Runnable writeRecorder() {
+        ReadYourWritesInterceptor.LastWrite lastWrite = ReadYourWritesInterceptor.lastWrite();
+        if (lastWrite == null) {
+            return () -> {
+            };
+        }
+        return () -> lastWrite.recorded.set(System.currentTimeMillis());
+    }
+}
@@ -0,0 +1,149 @@
+package com.open.su;
+
+import io.grpc.Context;
+import io.grpc.Contexts;
+import io.grpc.ForwardingServerCall;
+import io.grpc.ForwardingServerCallListener;
+import io.grpc.Metadata;
+import io.grpc.ServerCall;
+import io.grpc.ServerCallHandler;
+import io.grpc.ServerInterceptor;
+import io.grpc.Status;
+import io.quarkus.grpc.GlobalInterceptor;
+import io.smallrye.common.vertx.VertxContext;
+import io.vertx.core.Vertx;
+import jakarta.enterprise.context.ApplicationScoped;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Carries the time of the last write of a client in the gRPC metadata, so that its reads are pinned to the primary
+ * while the read replica may not have its writes yet: the calls writing to the primary answer with the
+ * {@value #LAST_WRITE} response header, which the client sends back with its next calls. Only the reads of the client
+ * are pinned, the reads of the other clients keep going to the replica.
+ * <p>
+ * The last write is also kept in the local data of the duplicated Vert.x context of the call, so that it is known all
+ * along the reactive pipeline of the call, not only from the gRPC method itself.
+ *
+ * @see ReadReplicaRouter
+ */
+@GlobalInterceptor
+@ApplicationScoped
+public class ReadYourWritesInterceptor implements ServerInterceptor {
+
+    /**
+     * Request and response header with the time of the last write of the client, in milliseconds since the epoch
+     */
+    static final String LAST_WRITE = "x-last-write";
+
+    private static final Metadata.Key<String> LAST_WRITE_HEADER = Metadata.Key.of(LAST_WRITE, Metadata.ASCII_STRING_MARSHALLER);
+    private static final Context.Key<LastWrite> LAST_WRITE_KEY = Context.key(LAST_WRITE);
+
+    @Override
+    public <Q, R> ServerCall.Listener<Q> interceptCall(ServerCall<Q, R> call, Metadata headers, ServerCallHandler<Q, R> next) {
+        long requested = 0;
+        String header = headers.get(LAST_WRITE_HEADER);
+        if (header != null) {
+            try {
+                requested = Long.parseLong(header);
+            } catch (NumberFormatException e) {
+                call.close(Status.INVALID_ARGUMENT.withDescription("Invalid " + LAST_WRITE + " " + header), new Metadata());
+                return new ServerCall.Listener<>() {
+                };
+            }
+        }
+
+        LastWrite lastWrite = new LastWrite(requested);
+        ServerCall<Q, R> writtenCall = new ForwardingServerCall.SimpleForwardingServerCall<>(call) {
+            @Override
+            public void sendHeaders(Metadata responseHeaders) {
+                long recorded = lastWrite.recorded.get();
+                if (recorded != 0) {
+                    responseHeaders.put(LAST_WRITE_HEADER, Long.toString(recorded));
+                }
+                super.sendHeaders(responseHeaders);
+            }
+        };
+        ServerCall.Listener<Q> listener = Contexts.interceptCall(Context.current().withValue(LAST_WRITE_KEY, lastWrite), writtenCall, headers, next);
+        return new ForwardingServerCallListener.SimpleForwardingServerCallListener<>(listener) {
+            @Override
+            public void onMessage(Q message) {
+                bind(lastWrite);
+                super.onMessage(message);
+            }
+
+            @Override
+            public void onHalfClose() {
+                bind(lastWrite);
+                super.onHalfClose();
+            }
+        };
+    }
+
+    /**
+     * Get the last write of the current call
+     *
+     * @return the last write, null outside a gRPC call
+     */
+    static LastWrite lastWrite() {
+        io.vertx.core.Context context = Vertx.currentContext();
+        if (context != null && VertxContext.isDuplicatedContext(context)) {
+            LastWrite lastWrite = context.getLocal(LAST_WRITE);
+            if (lastWrite != null) {
+                return lastWrite;
+            }
+        }
+        return LAST_WRITE_KEY.get();
+    }
+
+    /**
+     * Keep the last write of a call in the duplicated Vert.x context the call is handled on
+     *
+     * @param lastWrite the last write
+     */
+    private static void bind(LastWrite lastWrite) {
+        io.vertx.core.Context context = Vertx.currentContext();
+        if (context != null && VertxContext.isDuplicatedContext(context)) {
+            context.putLocal(LAST_WRITE, lastWrite);
+        }
+    }
+
+    /**
+     * Create the context of a call whose client sent the time of its last write
+     *
+     * @param requested the time of the last write sent by the client, 0 if none
+     * @return the context
+     */
+    static Context callContext(long requested) {
+        return Context.current().withValue(LAST_WRITE_KEY, new LastWrite(requested));
+    }
+
+    /**
+     * Last write of the client of a call
+     */
+    static final class LastWrite {
+
+        /**
+         * Time of the last write sent by the client, 0 if none
+         */
+        final long requested;
+
+        /**
+         * Time of the last write of the call, 0 if none
+         */
+        final AtomicLong recorded = new AtomicLong();
+
+        LastWrite(long requested) {
+            this.requested = requested;
+        }
+
+        /**
+         * Get the time of the last write of the client
+         *
+         * @return the time in milliseconds since the epoch, 0 if none
+         */
+        long time() {
+            return Math.max(requested, recorded.get());
+        }
+    }
+}
@@ -0,0 +1,62 @@
+package com.open.su;
+
+import com.open.su.exceptions.EventServiceException;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.UUID;
+
+/**
+ * Position in the ranked results of a search: the rank and id of the last event returned. Clients only see the cursor
+ * as an opaque token (see {@link #encode()}).
+ *
+ * @param rank the rank of the last event returned, null for the first page
+ * @param id   the id of the last event returned, null for the first page
+ * @see EventService#searchEvents(String, SearchCursor, int)
+ */
+record SearchCursor(Float rank, UUID id) {
+
+    private static final String SEPARATOR = "|";
+
+    /**
+     * Create a cursor pointing before the best ranked event
+     *
+     * @return the cursor
+     */
+    static SearchCursor first() {
+        return new SearchCursor(null, null);
+    }
+
+    /**
+     * Decode a cursor encoded with {@link #encode()}
+     *
+     * @param token the encoded cursor
+     * @return the cursor
+     * @throws EventServiceException if the token is not a valid cursor
+     */
+    static SearchCursor decode(String token) {
+        try {
+            String[] parts = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8).split("\\" + SEPARATOR, 2);
+            return new SearchCursor(Float.valueOf(parts[0]), UUID.fromString(parts[1]));
+        } catch (IllegalArgumentException | IndexOutOfBoundsException e) {
+            throw EventServiceException.INVALID_ARGUMENT.withMessage("Invalid cursor " + token);
+        }
+    }
+
+    /**
+     * @return true if the cursor points before the best ranked event
+     */
+    boolean isFirst() {
+        return id == null;
+    }
+
+    /**
+     * Encode the cursor as an opaque URL safe token
+     *
+     * @return the token
+     */
+    String encode() {
+        String raw = rank + SEPARATOR + id;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+}
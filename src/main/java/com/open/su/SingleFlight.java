@@ -0,0 +1,74 @@
+package com.open.su;
+
+import io.smallrye.mutiny.Uni;
+import io.vertx.core.Context;
+import io.vertx.core.Vertx;
+
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+
+/**
+ * Coalesces the concurrent loads of the same key: the first caller runs the load, and the callers arriving while it is
+ * in flight wait for its result instead of running their own. Nothing is kept once the load completes, the next caller
+ * runs a new load, so this is not a cache and works whether caching is enabled or not.
+ * <p>
+ * The load is not cancelled with the caller that started it, the other callers may still wait for it. Each caller
+ * receives the result on its own Vert.x context.
+ *
+ * @param <K> the type of the keys
+ * @param <V> the type of the loaded values
+ * @see EventService#getEventDetails(java.util.UUID)
+ */
+class SingleFlight<K, V> {
+
+    private final Map<K, CompletableFuture<V>> inFlight = new ConcurrentHashMap<>();
+
+    /**
+     * Load a key, or join the load of the key in flight
+     *
+     * @param key    the key
+     * @param loader the load of a key, only called when no load of the key is in flight
+     * @return a {@link Uni} with the loaded value
+     */
+    Uni<V> load(K key, Function<K, Uni<V>> loader) {
+        return Uni.createFrom().deferred(() -> {
+            CompletableFuture<V> flight = new CompletableFuture<>();
+            CompletableFuture<V> existing = inFlight.putIfAbsent(key, flight);
+            if (existing == null) {
+                Uni.createFrom().deferred(() -> loader.apply(key)).subscribe().with(
+                        value -> {
+                            inFlight.remove(key, flight);
+                            flight.complete(value);
+                        },
+                        failure -> {
+                            inFlight.remove(key, flight);
+                            flight.completeExceptionally(failure);
+                        });
+            }
+            Uni<V> result = Uni.createFrom().completionStage(existing != null ? existing : flight);
+            Context context = Vertx.currentContext();
+            return context == null ? result : result.emitOn(command -> context.runOnContext(ignored -> command.run()));
+        });
+    }
+
+    /**
+     * Forget the load of a key in flight, once the key has changed: the load may have read the key before the change,
+     * so the next callers run a new load instead of joining it. The callers already waiting for it still get its result.
+     *
+     * @param key the key
+     */
+    void forget(K key) {
+        inFlight.remove(key);
+    }
+
+    /**
+     * Get the number of keys with a load in flight
+     *
+     * @return the number of keys
+     */
+    int inFlight() {
+        return inFlight.size();
+    }
+}
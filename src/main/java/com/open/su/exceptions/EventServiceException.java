@@ -5,6 +5,10 @@ import io.grpc.Status;
 
 /**
  * Exception thrown by the event service.
+ * <p>
+ * Expected failures (not found, conflict, invalid argument, failed precondition, resource exhausted and deadline
+ * exceeded) are normal traffic, so they do not capture a stack trace: the message is enough to tell what happened.
+ * Database errors keep their stack trace and cause.
  *
  * @see EventService
  */
@@ -30,15 +34,29 @@ public class EventServiceException extends RuntimeException {
      */
     public static final EventServiceException INVALID_ARGUMENT = new EventServiceException(Type.INVALID_ARGUMENT, "Invalid argument");
 
+    /**
+     * Predefined exception for failed precondition errors.
+     */
+    public static final EventServiceException FAILED_PRECONDITION = new EventServiceException(Type.FAILED_PRECONDITION, "Failed precondition");
+
+    /**
+     * Predefined exception for resource exhausted errors.
+     */
+    public static final EventServiceException RESOURCE_EXHAUSTED = new EventServiceException(Type.RESOURCE_EXHAUSTED, "Resource exhausted");
+
+    /**
+     * Predefined exception for deadline exceeded errors.
+     */
+    public static final EventServiceException DEADLINE_EXCEEDED = new EventServiceException(Type.DEADLINE_EXCEEDED, "Deadline exceeded");
+
     final Type type;
 
     EventServiceException(Type type, String message) {
-        super(message);
-        this.type = type;
+        this(type, message, null);
     }
 
     EventServiceException(Type type, String message, Throwable cause) {
-        super(message, cause);
+        super(message, cause, false, type.stackTrace);
         this.type = type;
     }
 
@@ -47,7 +65,7 @@ public class EventServiceException extends RuntimeException {
     }
 
     public EventServiceException withMessage(String message) {
-        return new EventServiceException(type, message, this);
+        return new EventServiceException(type, message, getCause());
     }
 
     public EventServiceException withCause(Throwable cause) {
@@ -55,29 +73,42 @@ public class EventServiceException extends RuntimeException {
     }
 
     /**
-     * Converts this exception to a {@link RuntimeException} that is gRPC suitable.
+     * Converts this exception to the gRPC {@link Status} matching its type.
+     *
+     * @return the gRPC status, described with the message of this exception
+     */
+    public Status toStatus() {
+        return type.status.withDescription(getMessage());
+    }
+
+    /**
+     * Converts this exception to a {@link RuntimeException} that is gRPC suitable. The gRPC exception does not capture
+     * a stack trace, the one of a database error is kept by its cause.
      *
      * @return the gRPC suitable exception
      */
     public RuntimeException toGrpcException() {
-        return switch (type) {
-            case DATABASE_ERROR ->
-                    Status.INTERNAL.withDescription(getMessage()).withCause(getCause()).asRuntimeException();
-            case NOT_FOUND -> Status.NOT_FOUND.withDescription(getMessage()).withCause(getCause()).asRuntimeException();
-            case CONFLICT ->
-                    Status.ALREADY_EXISTS.withDescription(getMessage()).withCause(getCause()).asRuntimeException();
-            case INVALID_ARGUMENT ->
-                    Status.INVALID_ARGUMENT.withDescription(getMessage()).withCause(getCause()).asRuntimeException();
-        };
+        return new StacklessStatusRuntimeException(type.stackTrace ? toStatus().withCause(this) : toStatus());
     }
 
     /**
      * Types of possible {@link EventServiceException}.
      */
     public enum Type {
-        DATABASE_ERROR,
-        NOT_FOUND,
-        CONFLICT,
-        INVALID_ARGUMENT
+        DATABASE_ERROR(Status.INTERNAL, true),
+        NOT_FOUND(Status.NOT_FOUND, false),
+        CONFLICT(Status.ALREADY_EXISTS, false),
+        INVALID_ARGUMENT(Status.INVALID_ARGUMENT, false),
+        FAILED_PRECONDITION(Status.FAILED_PRECONDITION, false),
+        RESOURCE_EXHAUSTED(Status.RESOURCE_EXHAUSTED, false),
+        DEADLINE_EXCEEDED(Status.DEADLINE_EXCEEDED, false);
+
+        final Status status;
+        final boolean stackTrace;
+
+        Type(Status status, boolean stackTrace) {
+            this.status = status;
+            this.stackTrace = stackTrace;
+        }
     }
 }
@@ -0,0 +1,22 @@
+package com.open.su.exceptions;
+
+import io.grpc.Status;
+import io.grpc.StatusRuntimeException;
+
+/**
+ * {@link StatusRuntimeException} which does not capture a stack trace. The status is all the client receives, so
+ * capturing the stack trace of every failed call would only cost time and allocations.
+ *
+ * @see EventServiceException#toGrpcException()
+ */
+public class StacklessStatusRuntimeException extends StatusRuntimeException {
+
+    public StacklessStatusRuntimeException(Status status) {
+        super(status);
+    }
+
+    @Override
+    public synchronized Throwable fillInStackTrace() {
+        return this;
+    }
+}
@@ -2,25 +2,87 @@ package com.open.su;
 
 
 import com.open.su.exceptions.EventServiceException;
+import io.grpc.Status;
+import io.grpc.StatusRuntimeException;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.quarkus.cache.Cache;
+import io.quarkus.cache.CacheName;
+import io.quarkus.cache.CaffeineCache;
 import io.quarkus.hibernate.reactive.panache.Panache;
 import io.quarkus.panache.common.Page;
 import io.quarkus.panache.common.Sort;
 import io.quarkus.test.hibernate.reactive.panache.TransactionalUniAsserter;
 import io.quarkus.test.junit.QuarkusTest;
 import io.quarkus.test.vertx.RunOnVertxContext;
+import io.quarkus.vertx.VertxContextSupport;
+import io.smallrye.mutiny.Multi;
+import io.smallrye.mutiny.Uni;
+import io.smallrye.mutiny.helpers.test.AssertSubscriber;
+import io.vertx.mutiny.pgclient.PgPool;
+import io.vertx.mutiny.sqlclient.Tuple;
 import jakarta.inject.Inject;
+import org.hibernate.reactive.mutiny.Mutiny;
 import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.Test;
 
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
 import java.util.Date;
 import java.util.List;
 import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.regex.Pattern;
 
 @QuarkusTest
 class EventServiceTest {
+    /**
+     * Sort and Incremental Sort nodes of an EXPLAIN plan
+     */
+    private static final Pattern SORT_NODE = Pattern.compile("^\\s*(->\\s+)?(Incremental )?Sort\\s+\\(");
+
     @Inject
     EventService eventService;
 
+    @Inject
+    @CacheName(EventService.EVENT_DETAILS_CACHE)
+    Cache eventDetailsCache;
+
+    @Inject
+    @CacheName(EventService.EVENT_COUNT_CACHE)
+    Cache eventCountCache;
+
+    @Inject
+    EventResponseCache eventResponseCache;
+
+    @Inject
+    MeterRegistry meterRegistry;
+
+    @Inject
+    EventMetrics eventMetrics;
+
+    @Inject
+    EventChangeFeed eventChangeFeed;
+
+    @Inject
+    OutboxRelay outboxRelay;
+
+    @Inject
+    @CacheName(EventService.IDEMPOTENCY_KEYS_CACHE)
+    Cache idempotencyKeysCache;
+
+    @Inject
+    IdempotencyKeyPurge idempotencyKeyPurge;
+
+    @Inject
+    PgPool pool;
+
     @RunOnVertxContext
     @Test
     void testListEvents(TransactionalUniAsserter asserter) {
@@ -71,11 +133,17 @@ class EventServiceTest {
             return eventService.listEvents(page, sort);
         }, response -> {
             List<Event> events = (List<Event>) asserter.getData("events");
-            Assertions.assertEquals(events.get(0), response.get(0));
-            Assertions.assertEquals(events.get(1), response.get(1));
-            Assertions.assertEquals(events.get(2), response.get(2));
+            Assertions.assertEquals(events.get(0).toListEventsResponse(), response.get(0).toListEventsResponse());
+            Assertions.assertEquals(events.get(1).toListEventsResponse(), response.get(1).toListEventsResponse());
+            Assertions.assertEquals(events.get(2).toListEventsResponse(), response.get(2).toListEventsResponse());
         });
 
+        asserter.assertFailedWith(() -> eventService.listEvents(Page.of(0, 10), Sort.by("creatorId"))
+                , e -> Assertions.assertSame(EventServiceException.Type.INVALID_ARGUMENT, ((EventServiceException) e).getType()));
+
+        asserter.assertFailedWith(() -> eventService.listEvents(Page.of(0, 10), Sort.by("name").and("price"))
+                , e -> Assertions.assertSame(EventServiceException.Type.INVALID_ARGUMENT, ((EventServiceException) e).getType()));
+
         asserter.execute(() -> Event.deleteAll());
 
         asserter.surroundWith(u -> Panache.withSession(() -> u));
@@ -83,36 +151,94 @@ class EventServiceTest {
 
     @RunOnVertxContext
     @Test
-    void testGetEventDetails(TransactionalUniAsserter asserter) {
+    void testSortKeysAreIndexed(TransactionalUniAsserter asserter) {
+        for (EventSortKey key : EventSortKey.values()) {
+            for (String direction : List.of("ASC", "DESC")) {
+                // Sequential scans are only used when no index can serve the query once they are disabled, and an index
+                // scan followed by a sort is not served in the index order
+                asserter.assertThat(() -> Panache.getSession().chain(session -> session.createNativeQuery("SET LOCAL enable_seqscan = off").executeUpdate()
+                        .chain(() -> session.createNativeQuery("EXPLAIN SELECT * FROM event ORDER BY " + key.column + " " + direction + ", id " + direction + " LIMIT 10", String.class).getResultList())
+                ), plan -> {
+                    Assertions.assertTrue(plan.stream().noneMatch(line -> line.contains("Seq Scan")), "Sorting by " + key + " " + direction + " is not indexed:\n" + String.join("\n", plan));
+                    Assertions.assertTrue(plan.stream().noneMatch(line -> SORT_NODE.matcher(line).find()), "Sorting by " + key + " " + direction + " is not in index order:\n" + String.join("\n", plan));
+                });
+            }
+        }
+
+        asserter.surroundWith(u -> Panache.withSession(() -> u));
+    }
+
+    @RunOnVertxContext
+    @Test
+    void testListEventsAfter(TransactionalUniAsserter asserter) {
         asserter.execute(() -> {
-            Event event = new Event();
-            event.name = "testGetEventDetails 1";
-            event.description = "Test description";
-            event.price = 10.0;
-            event.location = "Test location";
-            event.startDate = new Date();
-            event.endDate = new Date();
-            event.organizerId = UUID.randomUUID();
-            event.creatorId = UUID.randomUUID();
-            event.createdAt = new Date();
-            event.updatedAt = new Date();
+            Event event1 = new Event();
+            event1.name = "00testListEventsAfter 1";
+            event1.description = "Test description";
+            event1.price = 10.0;
+            event1.location = "Test location";
+            event1.startDate = new Date();
+            event1.endDate = new Date();
+            event1.organizerId = UUID.randomUUID();
+            event1.creatorId = UUID.randomUUID();
+            event1.createdAt = new Date();
+            event1.updatedAt = new Date();
+            Event event2 = new Event();
+            event2.name = "00testListEventsAfter 2";
+            event2.description = "Test description";
+            event2.price = 10.0;
+            event2.location = "Test location";
+            event2.startDate = new Date();
+            event2.endDate = new Date();
+            event2.organizerId = UUID.randomUUID();
+            event2.creatorId = UUID.randomUUID();
+            event2.createdAt = new Date();
+            event2.updatedAt = new Date();
+            Event event3 = new Event();
+            event3.name = "00testListEventsAfter 3";
+            event3.description = "Test description";
+            event3.price = 10.0;
+            event3.location = "Test location";
+            event3.startDate = new Date();
+            event3.endDate = new Date();
+            event3.organizerId = UUID.randomUUID();
+            event3.creatorId = UUID.randomUUID();
+            event3.createdAt = new Date();
+            event3.updatedAt = new Date();
 
-            asserter.putData("event", event);
+            asserter.putData("events", List.of(event1, event2, event3));
 
-            return event.persist();
+            return event1.persist().chain(event2::persist).chain(event3::persist);
+        });
+
+        asserter.assertThat(() -> eventService.listEventsAfter(EventCursor.first(EventSortKey.NAME, Sort.Direction.Ascending), 2), response -> {
+            List<Event> events = (List<Event>) asserter.getData("events");
+            Assertions.assertEquals(List.of(events.get(0), events.get(1)), response);
         });
 
         asserter.assertThat(() -> {
-            Event event = (Event) asserter.getData("event");
+            List<Event> events = (List<Event>) asserter.getData("events");
+            EventCursor cursor = EventCursor.decode(EventCursor.first(EventSortKey.NAME, Sort.Direction.Ascending).after(events.get(1)).encode());
 
-            return eventService.getEventDetails(event.id);
+            return eventService.listEventsAfter(cursor, 2);
         }, response -> {
-            Event event = (Event) asserter.getData("event");
-            Assertions.assertEquals(event, response);
+            List<Event> events = (List<Event>) asserter.getData("events");
+            Assertions.assertEquals(List.of(events.get(2)), response);
         });
 
-        asserter.assertFailedWith(() -> eventService.getEventDetails(UUID.randomUUID())
-                , e -> Assertions.assertSame(EventServiceException.Type.NOT_FOUND, ((EventServiceException) e).getType()));
+        asserter.assertThat(() -> {
+            List<Event> events = (List<Event>) asserter.getData("events");
+            EventCursor cursor = EventCursor.first(EventSortKey.NAME, Sort.Direction.Descending).after(events.get(2));
+
+            return eventService.listEventsAfter(cursor, 10);
+        }, response -> {
+            List<Event> events = (List<Event>) asserter.getData("events");
+            Assertions.assertEquals(List.of(events.get(1), events.get(0)), response);
+        });
+
+        asserter.assertFailedWith(() -> Uni.createFrom().item(() -> EventCursor.decode("not a cursor"))
+                        .chain(cursor -> eventService.listEventsAfter(cursor, 10))
+                , e -> Assertions.assertSame(EventServiceException.Type.INVALID_ARGUMENT, ((EventServiceException) e).getType()));
 
         asserter.execute(() -> Event.deleteAll());
 
@@ -121,10 +247,10 @@ class EventServiceTest {
 
     @RunOnVertxContext
     @Test
-    void testCreateEvent(TransactionalUniAsserter asserter) {
+    void testStreamEvents(TransactionalUniAsserter asserter) {
         asserter.execute(() -> {
             Event event1 = new Event();
-            event1.name = "testCreateEvent 1";
+            event1.name = "00testStreamEvents 1";
             event1.description = "Test description";
             event1.price = 10.0;
             event1.location = "Test location";
@@ -135,7 +261,7 @@ class EventServiceTest {
             event1.createdAt = new Date();
             event1.updatedAt = new Date();
             Event event2 = new Event();
-            event2.name = "testCreateEvent 2";
+            event2.name = "00testStreamEvents 2";
             event2.description = "Test description";
             event2.price = 10.0;
             event2.location = "Test location";
@@ -145,36 +271,136 @@ class EventServiceTest {
             event2.creatorId = UUID.randomUUID();
             event2.createdAt = new Date();
             event2.updatedAt = new Date();
+            Event event3 = new Event();
+            event3.name = "00testStreamEvents 3";
+            event3.description = "Test description";
+            event3.price = 10.0;
+            event3.location = "Test location";
+            event3.startDate = new Date();
+            event3.endDate = new Date();
+            event3.organizerId = UUID.randomUUID();
+            event3.creatorId = UUID.randomUUID();
+            event3.createdAt = new Date();
+            event3.updatedAt = new Date();
 
-            asserter.putData("event1", event1);
-            asserter.putData("event2", event2);
+            asserter.putData("events", List.of(event1, event2, event3));
 
-            return event1.persist();
+            return event1.persist().chain(event2::persist).chain(event3::persist);
+        });
+
+        asserter.assertThat(() -> eventService.streamEvents(EventCursor.first(EventSortKey.NAME, Sort.Direction.Ascending), 0).collect().asList(), response -> {
+            List<Event> events = (List<Event>) asserter.getData("events");
+            Assertions.assertEquals(events.stream().map(e -> e.id).toList(), response.stream().map(e -> e.id).toList());
+            Assertions.assertEquals(events.get(0).name, response.get(0).name);
         });
 
         asserter.assertThat(() -> {
-            Event event = (Event) asserter.getData("event2");
+            List<Event> events = (List<Event>) asserter.getData("events");
+            EventCursor cursor = EventCursor.first(EventSortKey.NAME, Sort.Direction.Ascending).after(events.get(0));
 
-            return eventService.createEvent(event);
+            return eventService.streamEvents(cursor, 1).collect().asList();
         }, response -> {
-            Event event = (Event) asserter.getData("event2");
-            Assertions.assertEquals(event.id, response);
+            List<Event> events = (List<Event>) asserter.getData("events");
+            Assertions.assertEquals(List.of(events.get(1).id), response.stream().map(e -> e.id).toList());
+        });
+
+        asserter.execute(() -> Event.deleteAll());
+
+        asserter.surroundWith(u -> Panache.withSession(() -> u));
+    }
+
+    @Test
+    void testStreamEventsIdleTimeout() {
+        pool.query("INSERT INTO event (id, name, description, price, location, start_date, end_date, organizer_id, creator_id, created_at, updated_at)"
+                + " SELECT gen_random_uuid(), 'testStreamEventsIdleTimeout ' || i, 'Test description', 10.0, 'Test location', now(), now(),"
+                + " gen_random_uuid(), gen_random_uuid(), now(), now() FROM generate_series(1, 2) AS i").executeAndAwait();
+        try {
+            // The subscriber takes the first event and stalls, the stream is cancelled once the idle timeout elapses
+            AssertSubscriber<Event> subscriber = eventService.streamEvents(EventCursor.first(EventSortKey.NAME, Sort.Direction.Ascending), 0)
+                    .subscribe().withSubscriber(AssertSubscriber.create(1));
+            subscriber.awaitItems(1).awaitFailure(Duration.ofSeconds(10));
+            Assertions.assertSame(EventServiceException.Type.DEADLINE_EXCEEDED, ((EventServiceException) subscriber.getFailure()).getType());
+        } finally {
+            pool.query("DELETE FROM event WHERE name LIKE 'testStreamEventsIdleTimeout %'").executeAndAwait();
+        }
+    }
+
+    @RunOnVertxContext
+    @Test
+    void testStreamEventsInWindow(TransactionalUniAsserter asserter) {
+        asserter.execute(() -> {
+            Event event1 = new Event();
+            event1.name = "testStreamEventsInWindow 1";
+            event1.description = "Test description";
+            event1.price = 10.0;
+            event1.location = "Test location";
+            event1.startDate = Date.from(Instant.parse("2030-01-01T10:00:00Z"));
+            event1.endDate = Date.from(Instant.parse("2030-01-01T12:00:00Z"));
+            event1.organizerId = UUID.randomUUID();
+            event1.creatorId = UUID.randomUUID();
+            event1.createdAt = new Date();
+            event1.updatedAt = new Date();
+            Event event2 = new Event();
+            event2.name = "testStreamEventsInWindow 2";
+            event2.description = "Test description";
+            event2.price = 10.0;
+            event2.location = "Test location";
+            event2.startDate = Date.from(Instant.parse("2030-01-01T11:00:00Z"));
+            event2.endDate = Date.from(Instant.parse("2030-01-03T00:00:00Z"));
+            event2.organizerId = UUID.randomUUID();
+            event2.creatorId = UUID.randomUUID();
+            event2.createdAt = new Date();
+            event2.updatedAt = new Date();
+            Event event3 = new Event();
+            event3.name = "testStreamEventsInWindow 3";
+            event3.description = "Test description";
+            event3.price = 10.0;
+            event3.location = "Test location";
+            event3.startDate = Date.from(Instant.parse("2030-02-01T00:00:00Z"));
+            event3.endDate = Date.from(Instant.parse("2030-02-02T00:00:00Z"));
+            event3.organizerId = UUID.randomUUID();
+            event3.creatorId = UUID.randomUUID();
+            event3.createdAt = new Date();
+            event3.updatedAt = new Date();
+
+            asserter.putData("events", List.of(event1, event2, event3));
+
+            return event1.persist().chain(event2::persist).chain(event3::persist);
+        });
+
+        asserter.assertThat(() -> eventService.streamEventsInWindow(Date.from(Instant.parse("2030-01-01T11:30:00Z")), Date.from(Instant.parse("2030-01-02T00:00:00Z")),
+                EventCursor.first(EventSortKey.START_DATE, Sort.Direction.Ascending), 0).collect().asList(), response -> {
+            List<Event> events = (List<Event>) asserter.getData("events");
+            Assertions.assertEquals(List.of(events.get(0).id, events.get(1).id), response.stream().map(e -> e.id).toList());
         });
 
         asserter.assertThat(() -> {
-            Event event = (Event) asserter.getData("event2");
+            List<Event> events = (List<Event>) asserter.getData("events");
+            EventCursor cursor = EventCursor.first(EventSortKey.START_DATE, Sort.Direction.Ascending).after(events.get(0));
 
-            return Event.findById(event.id);
+            return eventService.streamEventsInWindow(Date.from(Instant.parse("2030-01-01T00:00:00Z")), Date.from(Instant.parse("2030-03-01T00:00:00Z")), cursor, 1).collect().asList();
         }, response -> {
-            Event event = (Event) asserter.getData("event2");
-            Assertions.assertEquals(event, response);
+            List<Event> events = (List<Event>) asserter.getData("events");
+            Assertions.assertEquals(List.of(events.get(1).id), response.stream().map(e -> e.id).toList());
         });
 
-        asserter.assertFailedWith(() -> {
+        asserter.assertFailedWith(() -> eventService.streamEventsInWindow(Date.from(Instant.parse("2030-01-02T00:00:00Z")), Date.from(Instant.parse("2030-01-01T00:00:00Z")),
+                        EventCursor.first(EventSortKey.START_DATE, Sort.Direction.Ascending), 0).collect().asList()
+                , e -> Assertions.assertSame(EventServiceException.Type.INVALID_ARGUMENT, ((EventServiceException) e).getType()));
+
+        asserter.execute(() -> Event.deleteAll());
+
+        asserter.surroundWith(u -> Panache.withSession(() -> u));
+    }
+
+    @RunOnVertxContext
+    @Test
+    void testGetEventDetails(TransactionalUniAsserter asserter) {
+        asserter.execute(() -> {
             Event event = new Event();
-            event.name = "testCreateEvent 3";
+            event.name = "testGetEventDetails 1";
             event.description = "Test description";
-            event.price = -1.0;
+            event.price = 10.0;
             event.location = "Test location";
             event.startDate = new Date();
             event.endDate = new Date();
@@ -183,12 +409,34 @@ class EventServiceTest {
             event.createdAt = new Date();
             event.updatedAt = new Date();
 
-            return eventService.createEvent(event);
-        }, e -> Assertions.assertSame(EventServiceException.Type.INVALID_ARGUMENT, ((EventServiceException) e).getType()));
+            asserter.putData("event", event);
 
-        asserter.assertFailedWith(() -> {
+            return event.persist();
+        });
+
+        asserter.assertThat(() -> {
+            Event event = (Event) asserter.getData("event");
+
+            return eventService.getEventDetails(event.id);
+        }, response -> {
+            Event event = (Event) asserter.getData("event");
+            Assertions.assertEquals(event, response);
+        });
+
+        asserter.assertFailedWith(() -> eventService.getEventDetails(UUID.randomUUID())
+                , e -> Assertions.assertSame(EventServiceException.Type.NOT_FOUND, ((EventServiceException) e).getType()));
+
+        asserter.execute(() -> Event.deleteAll());
+
+        asserter.surroundWith(u -> Panache.withSession(() -> u));
+    }
+
+    @RunOnVertxContext
+    @Test
+    void testGetEventDetailsCacheInvalidation(TransactionalUniAsserter asserter) {
+        asserter.execute(() -> {
             Event event = new Event();
-            event.name = ((Event) asserter.getData("event1")).name;
+            event.name = "testGetEventDetailsCacheInvalidation 1";
             event.description = "Test description";
             event.price = 10.0;
             event.location = "Test location";
@@ -199,8 +447,35 @@ class EventServiceTest {
             event.createdAt = new Date();
             event.updatedAt = new Date();
 
-            return eventService.createEvent(event);
-        }, e -> Assertions.assertSame(EventServiceException.Type.CONFLICT, ((EventServiceException) e).getType()));
+            asserter.putData("event", event);
+
+            return event.persist();
+        });
+
+        asserter.assertThat(() -> eventService.getEventDetails(((Event) asserter.getData("event")).id), response -> {
+            Event event = (Event) asserter.getData("event");
+            Assertions.assertTrue(eventDetailsCache.as(CaffeineCache.class).keySet().contains(event.id));
+        });
+
+        asserter.assertThat(() -> {
+            Event event = new Event();
+            event.id = ((Event) asserter.getData("event")).id;
+            event.description = "Updated description";
+
+            return eventService.updateEvent(event);
+        }, response -> Assertions.assertFalse(eventDetailsCache.as(CaffeineCache.class).keySet().contains(response)));
+
+        // Updates do not go through the session, clear it to reload the event
+        asserter.assertThat(() -> Panache.getSession().invoke(Mutiny.Session::clear)
+                .chain(() -> eventService.getEventDetails(((Event) asserter.getData("event")).id)), response -> {
+            Assertions.assertEquals("Updated description", response.description);
+            Assertions.assertTrue(eventDetailsCache.as(CaffeineCache.class).keySet().contains(response.id));
+        });
+
+        asserter.assertThat(() -> eventService.deleteEvent(((Event) asserter.getData("event")).id), response -> {
+            Event event = (Event) asserter.getData("event");
+            Assertions.assertFalse(eventDetailsCache.as(CaffeineCache.class).keySet().contains(event.id));
+        });
 
         asserter.execute(() -> Event.deleteAll());
 
@@ -209,10 +484,10 @@ class EventServiceTest {
 
     @RunOnVertxContext
     @Test
-    void testUpdateEvent(TransactionalUniAsserter asserter) {
+    void testCreateEvent(TransactionalUniAsserter asserter) {
         asserter.execute(() -> {
             Event event1 = new Event();
-            event1.name = "testUpdateEvent 1";
+            event1.name = "testCreateEvent 1";
             event1.description = "Test description";
             event1.price = 10.0;
             event1.location = "Test location";
@@ -223,8 +498,7 @@ class EventServiceTest {
             event1.createdAt = new Date();
             event1.updatedAt = new Date();
             Event event2 = new Event();
-            event2.id = UUID.randomUUID();
-            event2.name = "testUpdateEvent 2";
+            event2.name = "testCreateEvent 2";
             event2.description = "Test description";
             event2.price = 10.0;
             event2.location = "Test location";
@@ -242,29 +516,26 @@ class EventServiceTest {
         });
 
         asserter.assertThat(() -> {
-            Event event1 = (Event) asserter.getData("event1");
-            Event event2 = (Event) asserter.getData("event2");
-            event1.name = event2.name;
+            Event event = (Event) asserter.getData("event2");
 
-            return eventService.updateEvent(event1);
+            return eventService.createEvent(event);
         }, response -> {
-            Event event = (Event) asserter.getData("event1");
+            Event event = (Event) asserter.getData("event2");
             Assertions.assertEquals(event.id, response);
         });
 
         asserter.assertThat(() -> {
-            Event event = (Event) asserter.getData("event1");
+            Event event = (Event) asserter.getData("event2");
 
             return Event.findById(event.id);
         }, response -> {
             Event event = (Event) asserter.getData("event2");
-            Assertions.assertEquals(event.name, ((Event) response).name);
+            Assertions.assertEquals(event, response);
         });
 
         asserter.assertFailedWith(() -> {
             Event event = new Event();
-            event.id = UUID.randomUUID();
-            event.name = "testUpdateEvent 3";
+            event.name = "testCreateEvent 3";
             event.description = "Test description";
             event.price = -1.0;
             event.location = "Test location";
@@ -275,7 +546,149 @@ class EventServiceTest {
             event.createdAt = new Date();
             event.updatedAt = new Date();
 
-            return eventService.updateEvent(event);
+            return eventService.createEvent(event);
+        }, e -> Assertions.assertSame(EventServiceException.Type.INVALID_ARGUMENT, ((EventServiceException) e).getType()));
+
+        asserter.assertFailedWith(() -> {
+            Event event = new Event();
+            event.name = ((Event) asserter.getData("event1")).name;
+            event.description = "Test description";
+            event.price = 10.0;
+            event.location = "Test location";
+            event.startDate = new Date();
+            event.endDate = new Date();
+            event.organizerId = UUID.randomUUID();
+            event.creatorId = UUID.randomUUID();
+            event.createdAt = new Date();
+            event.updatedAt = new Date();
+
+            return eventService.createEvent(event);
+        }, e -> Assertions.assertSame(EventServiceException.Type.CONFLICT, ((EventServiceException) e).getType()));
+
+        asserter.execute(() -> Event.deleteAll());
+
+        asserter.surroundWith(u -> Panache.withSession(() -> u));
+    }
+
+    @RunOnVertxContext
+    @Test
+    void testCreateEvents(TransactionalUniAsserter asserter) {
+        asserter.execute(() -> {
+            Event event = new Event();
+            event.name = "testCreateEvents 1";
+            event.description = "Test description";
+            event.price = 10.0;
+            event.location = "Test location";
+            event.startDate = new Date();
+            event.endDate = new Date();
+            event.organizerId = UUID.randomUUID();
+            event.creatorId = UUID.randomUUID();
+            event.createdAt = new Date();
+            event.updatedAt = new Date();
+
+            return event.persist();
+        });
+
+        asserter.assertThat(() -> {
+            List<Event> events = new ArrayList<>();
+            for (String name : List.of("testCreateEvents 2", "testCreateEvents 1", "testCreateEvents 3", "testCreateEvents 2", "testCreateEvents 4")) {
+                Event event = new Event();
+                event.name = name;
+                event.description = "Test description";
+                event.price = name.endsWith("3") ? -1.0 : 10.0;
+                event.location = "Test location";
+                event.startDate = new Date();
+                event.endDate = new Date();
+                event.organizerId = UUID.randomUUID();
+                events.add(event);
+            }
+
+            return eventService.createEvents(events);
+        }, response -> {
+            Assertions.assertEquals(5, response.size());
+            Assertions.assertNotNull(response.get(0).id());
+            Assertions.assertSame(EventServiceException.Type.CONFLICT, response.get(1).error().getType());
+            Assertions.assertSame(EventServiceException.Type.INVALID_ARGUMENT, response.get(2).error().getType());
+            Assertions.assertSame(EventServiceException.Type.CONFLICT, response.get(3).error().getType());
+            Assertions.assertNotNull(response.get(4).id());
+        });
+
+        asserter.assertEquals(() -> Event.count(), 3L);
+
+        asserter.execute(() -> Event.deleteAll());
+
+        asserter.surroundWith(u -> Panache.withSession(() -> u));
+    }
+
+    @RunOnVertxContext
+    @Test
+    void testUpdateEvent(TransactionalUniAsserter asserter) {
+        asserter.execute(() -> {
+            Event event1 = new Event();
+            event1.name = "testUpdateEvent 1";
+            event1.description = "Test description";
+            event1.price = 10.0;
+            event1.location = "Test location";
+            event1.startDate = new Date();
+            event1.endDate = new Date();
+            event1.organizerId = UUID.randomUUID();
+            event1.creatorId = UUID.randomUUID();
+            event1.createdAt = new Date();
+            event1.updatedAt = new Date();
+            Event event2 = new Event();
+            event2.id = UUID.randomUUID();
+            event2.name = "testUpdateEvent 2";
+            event2.description = "Test description";
+            event2.price = 10.0;
+            event2.location = "Test location";
+            event2.startDate = new Date();
+            event2.endDate = new Date();
+            event2.organizerId = UUID.randomUUID();
+            event2.creatorId = UUID.randomUUID();
+            event2.createdAt = new Date();
+            event2.updatedAt = new Date();
+
+            asserter.putData("event1", event1);
+            asserter.putData("event2", event2);
+
+            return event1.persist();
+        });
+
+        asserter.assertThat(() -> {
+            Event event1 = (Event) asserter.getData("event1");
+            Event event2 = (Event) asserter.getData("event2");
+            event1.name = event2.name;
+
+            return eventService.updateEvent(event1);
+        }, response -> {
+            Event event = (Event) asserter.getData("event1");
+            Assertions.assertEquals(event.id, response);
+        });
+
+        asserter.assertThat(() -> {
+            Event event = (Event) asserter.getData("event1");
+
+            return Event.findById(event.id);
+        }, response -> {
+            Event event = (Event) asserter.getData("event2");
+            Assertions.assertEquals(event.name, ((Event) response).name);
+        });
+
+        asserter.assertFailedWith(() -> {
+            Event event = new Event();
+            event.id = UUID.randomUUID();
+            event.name = "testUpdateEvent 3";
+            event.description = "Test description";
+            event.price = -1.0;
+            event.location = "Test location";
+            event.startDate = new Date();
+            event.endDate = new Date();
+            event.organizerId = UUID.randomUUID();
+            event.creatorId = UUID.randomUUID();
+            event.createdAt = new Date();
+            event.updatedAt = new Date();
+
+            return eventService.updateEvent(event);
         }, e -> Assertions.assertSame(EventServiceException.Type.INVALID_ARGUMENT, ((EventServiceException) e).getType()));
 
         asserter.assertFailedWith(() -> {
@@ -355,4 +768,801 @@ class EventServiceTest {
 
         asserter.surroundWith(u -> Panache.withSession(() -> u));
     }
+
+    @RunOnVertxContext
+    @Test
+    void testEventResponseCache(TransactionalUniAsserter asserter) {
+        asserter.execute(() -> {
+            Event event = new Event();
+            event.name = "testEventResponseCache 1";
+            event.description = "Test description";
+            event.price = 10.0;
+            event.location = "Test location";
+            event.startDate = new Date();
+            event.endDate = new Date();
+            event.organizerId = UUID.randomUUID();
+            event.creatorId = UUID.randomUUID();
+            event.createdAt = new Date();
+            event.updatedAt = new Date();
+
+            asserter.putData("event", event);
+
+            return event.persist();
+        });
+
+        // The response of the same version of an event is built once
+        asserter.execute(() -> {
+            Event event = (Event) asserter.getData("event");
+            ListEventsResponse response = eventResponseCache.listEventsResponse(event);
+            Assertions.assertSame(response, eventResponseCache.listEventsResponse(event));
+            Assertions.assertEquals(event.toListEventsResponse(), response);
+            asserter.putData("response", response);
+        });
+
+        // Updating the event increments its version, whose response is built again
+        asserter.assertThat(() -> {
+            Event event = new Event();
+            event.id = ((Event) asserter.getData("event")).id;
+            event.price = 20.0;
+            return eventService.updateEvent(event)
+                    .chain(() -> Panache.getSession().invoke(Mutiny.Session::clear))
+                    .chain(() -> Event.<Event>findById(event.id));
+        }, event -> {
+            ListEventsResponse response = eventResponseCache.listEventsResponse(event);
+            Assertions.assertNotSame(asserter.getData("response"), response);
+            Assertions.assertEquals(20.0, response.getPrice());
+        });
+
+        asserter.execute(() -> Event.deleteAll());
+
+        asserter.surroundWith(u -> Panache.withSession(() -> u));
+    }
+
+    @RunOnVertxContext
+    @Test
+    void testEventMetrics(TransactionalUniAsserter asserter) {
+        asserter.execute(() -> asserter.putData("errors", meterRegistry.get(EventMetrics.ERROR_COUNTER)
+                .tag("method", EventService.Method.DETAILS.name()).tag("type", EventServiceException.Type.NOT_FOUND.name())
+                .counter().count()));
+
+        asserter.assertFailedWith(() -> eventService.getEventDetails(UUID.randomUUID())
+                , e -> Assertions.assertSame(EventServiceException.Type.NOT_FOUND, ((EventServiceException) e).getType()));
+
+        asserter.execute(() -> {
+            Assertions.assertEquals((double) asserter.getData("errors") + 1, meterRegistry.get(EventMetrics.ERROR_COUNTER)
+                    .tag("method", EventService.Method.DETAILS.name()).tag("type", EventServiceException.Type.NOT_FOUND.name())
+                    .counter().count());
+            Assertions.assertTrue(meterRegistry.get(EventMetrics.OPERATION_TIMER)
+                    .tag("method", EventService.Method.DETAILS.name()).tag("outcome", "failure")
+                    .timer().count() > 0);
+            Assertions.assertTrue(meterRegistry.get(EventMetrics.QUERY_TIMER)
+                    .tag("method", EventService.Method.DETAILS.name())
+                    .timers().stream().anyMatch(timer -> timer.count() > 0));
+        });
+
+        asserter.surroundWith(u -> Panache.withSession(() -> u));
+    }
+
+    @Test
+    void testEventMetricsCancelledStream() {
+        Timer successes = meterRegistry.get(EventMetrics.OPERATION_TIMER)
+                .tag("method", EventService.Method.STREAM.name()).tag("outcome", "success").timer();
+        Timer cancellations = meterRegistry.get(EventMetrics.OPERATION_TIMER)
+                .tag("method", EventService.Method.STREAM.name()).tag("outcome", "cancelled").timer();
+        long succeeded = successes.count();
+        long cancelled = cancellations.count();
+
+        // The subscriber takes one item and stops reading, the stream did not complete
+        eventMetrics.timeOperation(EventService.Method.STREAM, Multi.createFrom().range(0, 10))
+                .subscribe().withSubscriber(AssertSubscriber.create(1))
+                .awaitItems(1)
+                .cancel();
+
+        Assertions.assertEquals(cancelled + 1, cancellations.count());
+        Assertions.assertEquals(succeeded, successes.count());
+    }
+
+    @Test
+    void testExpectedErrorsAreStackless() {
+        EventServiceException notFound = EventServiceException.NOT_FOUND.withMessage("Event does not exist");
+        Assertions.assertEquals(0, notFound.getStackTrace().length);
+        Assertions.assertNull(notFound.getCause());
+
+        StatusRuntimeException grpcException = (StatusRuntimeException) notFound.toGrpcException();
+        Assertions.assertEquals(Status.Code.NOT_FOUND, grpcException.getStatus().getCode());
+        Assertions.assertEquals("Event does not exist", grpcException.getStatus().getDescription());
+        Assertions.assertEquals(0, grpcException.getStackTrace().length);
+
+        // Database errors keep their stack trace and cause
+        RuntimeException cause = new RuntimeException("Connection refused");
+        EventServiceException databaseError = EventServiceException.DATABASE_ERROR.withCause(cause).withMessage("Failed to get event");
+        Assertions.assertTrue(databaseError.getStackTrace().length > 0);
+        Assertions.assertSame(cause, databaseError.getCause());
+        Assertions.assertSame(databaseError, ((StatusRuntimeException) databaseError.toGrpcException()).getStatus().getCause());
+    }
+
+    @RunOnVertxContext
+    @Test
+    void testSearchEvents(TransactionalUniAsserter asserter) {
+        asserter.execute(() -> {
+            Event event1 = new Event();
+            event1.name = "testSearchEvents jazz night";
+            event1.description = "Live music";
+            event1.price = 10.0;
+            event1.location = "Paris";
+            event1.startDate = new Date();
+            event1.endDate = new Date();
+            event1.organizerId = UUID.randomUUID();
+            event1.creatorId = UUID.randomUUID();
+            event1.createdAt = new Date();
+            event1.updatedAt = new Date();
+            Event event2 = new Event();
+            event2.name = "testSearchEvents rock concert";
+            event2.description = "Jazz and rock covers";
+            event2.price = 10.0;
+            event2.location = "Lyon";
+            event2.startDate = new Date();
+            event2.endDate = new Date();
+            event2.organizerId = UUID.randomUUID();
+            event2.creatorId = UUID.randomUUID();
+            event2.createdAt = new Date();
+            event2.updatedAt = new Date();
+            Event event3 = new Event();
+            event3.name = "testSearchEvents cooking class";
+            event3.description = "Italian food";
+            event3.price = 10.0;
+            event3.location = "Rome";
+            event3.startDate = new Date();
+            event3.endDate = new Date();
+            event3.organizerId = UUID.randomUUID();
+            event3.creatorId = UUID.randomUUID();
+            event3.createdAt = new Date();
+            event3.updatedAt = new Date();
+
+            asserter.putData("events", List.of(event1, event2, event3));
+
+            return event1.persist().chain(event2::persist).chain(event3::persist);
+        });
+
+        // A match in the name ranks better than a match in the description
+        asserter.assertThat(() -> eventService.searchEvents("jazz", SearchCursor.first(), 1), results -> {
+            List<Event> events = (List<Event>) asserter.getData("events");
+            Assertions.assertEquals(1, results.size());
+            Assertions.assertEquals(events.get(0).id, results.get(0).event().id());
+            asserter.putData("cursor", new SearchCursor(results.get(0).rank(), results.get(0).event().id()).encode());
+        });
+
+        asserter.assertThat(() -> eventService.searchEvents("jazz", SearchCursor.decode((String) asserter.getData("cursor")), 10), results -> {
+            List<Event> events = (List<Event>) asserter.getData("events");
+            Assertions.assertEquals(1, results.size());
+            Assertions.assertEquals(events.get(1).id, results.get(0).event().id());
+        });
+
+        asserter.assertThat(() -> eventService.searchEvents("italian rome", SearchCursor.first(), 10), results -> {
+            List<Event> events = (List<Event>) asserter.getData("events");
+            Assertions.assertEquals(1, results.size());
+            Assertions.assertEquals(events.get(2).id, results.get(0).event().id());
+        });
+
+        asserter.assertFailedWith(() -> eventService.searchEvents(" ", SearchCursor.first(), 10)
+                , e -> Assertions.assertSame(EventServiceException.Type.INVALID_ARGUMENT, ((EventServiceException) e).getType()));
+
+        asserter.execute(() -> Event.deleteAll());
+
+        asserter.surroundWith(u -> Panache.withSession(() -> u));
+    }
+
+    @RunOnVertxContext
+    @Test
+    void testListEventsByOrganizer(TransactionalUniAsserter asserter) {
+        UUID organizerId = UUID.randomUUID();
+        UUID otherOrganizerId = UUID.randomUUID();
+        asserter.execute(() -> {
+            Event event1 = new Event();
+            event1.name = "testListEventsByOrganizer 1";
+            event1.description = "Test description";
+            event1.price = 10.0;
+            event1.location = "Test location";
+            event1.startDate = Date.from(Instant.parse("2030-01-02T00:00:00Z"));
+            event1.endDate = Date.from(Instant.parse("2030-01-02T00:00:00Z"));
+            event1.organizerId = organizerId;
+            event1.creatorId = UUID.randomUUID();
+            event1.createdAt = new Date();
+            event1.updatedAt = new Date();
+            Event event2 = new Event();
+            event2.name = "testListEventsByOrganizer 2";
+            event2.description = "Test description";
+            event2.price = 10.0;
+            event2.location = "Test location";
+            event2.startDate = Date.from(Instant.parse("2030-01-01T00:00:00Z"));
+            event2.endDate = Date.from(Instant.parse("2030-01-01T00:00:00Z"));
+            event2.organizerId = organizerId;
+            event2.creatorId = UUID.randomUUID();
+            event2.createdAt = new Date();
+            event2.updatedAt = new Date();
+            Event event3 = new Event();
+            event3.name = "testListEventsByOrganizer 3";
+            event3.description = "Test description";
+            event3.price = 10.0;
+            event3.location = "Test location";
+            event3.startDate = new Date();
+            event3.endDate = new Date();
+            event3.organizerId = otherOrganizerId;
+            event3.creatorId = UUID.randomUUID();
+            event3.createdAt = new Date();
+            event3.updatedAt = new Date();
+
+            asserter.putData("events", List.of(event1, event2, event3));
+
+            return event1.persist().chain(event2::persist).chain(event3::persist);
+        });
+
+        // Sorted by start date
+        asserter.assertThat(() -> eventService.listEventsByOrganizer(organizerId, Page.of(0, 10)), organizerEvents -> {
+            List<Event> events = (List<Event>) asserter.getData("events");
+            Assertions.assertEquals(2, organizerEvents.total());
+            Assertions.assertEquals(List.of(events.get(1).id, events.get(0).id), organizerEvents.events().stream().map(EventSummary::id).toList());
+        });
+
+        asserter.assertThat(() -> eventService.listEventsByOrganizer(organizerId, Page.of(1, 1)), organizerEvents -> {
+            List<Event> events = (List<Event>) asserter.getData("events");
+            Assertions.assertEquals(2, organizerEvents.total());
+            Assertions.assertEquals(List.of(events.get(0).id), organizerEvents.events().stream().map(EventSummary::id).toList());
+        });
+
+        // The cached ids of the organizer are invalidated by a creation
+        asserter.execute(() -> {
+            Event event4 = new Event();
+            event4.name = "testListEventsByOrganizer 4";
+            event4.description = "Test description";
+            event4.price = 10.0;
+            event4.location = "Test location";
+            event4.startDate = Date.from(Instant.parse("2030-01-03T00:00:00Z"));
+            event4.endDate = Date.from(Instant.parse("2030-01-03T00:00:00Z"));
+            event4.organizerId = organizerId;
+            event4.creatorId = UUID.randomUUID();
+            return eventService.createEvent(event4).invoke(id -> asserter.putData("event4", id));
+        });
+        asserter.assertThat(() -> eventService.listEventsByOrganizer(organizerId, Page.of(0, 10)),
+                organizerEvents -> Assertions.assertEquals(3, organizerEvents.total()));
+
+        // Only the ids of the first events are cached, the pages after them are read from the database
+        asserter.assertThat(() -> eventService.listEventsByOrganizer(organizerId, Page.of(0, 2)), organizerEvents -> {
+            List<Event> events = (List<Event>) asserter.getData("events");
+            Assertions.assertEquals(3, organizerEvents.total());
+            Assertions.assertEquals(List.of(events.get(1).id, events.get(0).id), organizerEvents.events().stream().map(EventSummary::id).toList());
+        });
+        asserter.assertThat(() -> eventService.listEventsByOrganizer(organizerId, Page.of(1, 2)), organizerEvents -> {
+            Assertions.assertEquals(3, organizerEvents.total());
+            Assertions.assertEquals(List.of(asserter.getData("event4")), organizerEvents.events().stream().map(EventSummary::id).toList());
+        });
+
+        // By a change of organizer, for both organizers
+        asserter.assertThat(() -> eventService.listEventsByOrganizer(otherOrganizerId, Page.of(0, 10)),
+                organizerEvents -> Assertions.assertEquals(1, organizerEvents.total()));
+        asserter.execute(() -> {
+            Event update = new Event();
+            update.id = ((List<Event>) asserter.getData("events")).get(0).id;
+            update.organizerId = otherOrganizerId;
+            return eventService.updateEvent(update);
+        });
+        asserter.assertThat(() -> eventService.listEventsByOrganizer(organizerId, Page.of(0, 10)),
+                organizerEvents -> Assertions.assertEquals(2, organizerEvents.total()));
+        asserter.assertThat(() -> eventService.listEventsByOrganizer(otherOrganizerId, Page.of(0, 10)),
+                organizerEvents -> Assertions.assertEquals(2, organizerEvents.total()));
+
+        // By a deletion
+        asserter.execute(() -> eventService.deleteEvent(((List<Event>) asserter.getData("events")).get(1).id));
+        asserter.assertThat(() -> eventService.listEventsByOrganizer(organizerId, Page.of(0, 10)),
+                organizerEvents -> Assertions.assertEquals(1, organizerEvents.total()));
+
+        asserter.execute(() -> Event.deleteAll());
+
+        asserter.surroundWith(u -> Panache.withSession(() -> u));
+    }
+
+    @RunOnVertxContext
+    @Test
+    void testCountEvents(TransactionalUniAsserter asserter) {
+        asserter.execute(() -> {
+            Event event1 = new Event();
+            event1.name = "testCountEvents 1";
+            event1.description = "Test description";
+            event1.price = 10.0;
+            event1.location = "Test location";
+            event1.startDate = new Date();
+            event1.endDate = new Date();
+            event1.organizerId = UUID.randomUUID();
+            event1.creatorId = UUID.randomUUID();
+            event1.createdAt = new Date();
+            event1.updatedAt = new Date();
+            Event event2 = new Event();
+            event2.name = "testCountEvents 2";
+            event2.description = "Test description";
+            event2.price = 10.0;
+            event2.location = "Test location";
+            event2.startDate = new Date();
+            event2.endDate = new Date();
+            event2.organizerId = UUID.randomUUID();
+            event2.creatorId = UUID.randomUUID();
+            event2.createdAt = new Date();
+            event2.updatedAt = new Date();
+
+            return event1.persist().chain(event2::persist);
+        });
+
+        asserter.execute(() -> eventCountCache.invalidateAll());
+        asserter.assertEquals(() -> eventService.countEvents(false), 2L);
+
+        // The exact count is cached
+        asserter.execute(() -> Event.deleteAll());
+        asserter.assertEquals(() -> eventService.countEvents(false), 2L);
+        asserter.execute(() -> eventCountCache.invalidateAll());
+        asserter.assertEquals(() -> eventService.countEvents(false), 0L);
+
+        // Statistics depend on when the table was last analyzed, only their availability is checked
+        asserter.assertThat(() -> eventService.countEvents(true), count -> Assertions.assertTrue(count >= 0));
+
+        asserter.execute(() -> eventCountCache.invalidateAll());
+
+        asserter.surroundWith(u -> Panache.withSession(() -> u));
+    }
+
+    @Test
+    void testWatchEvents() {
+        UUID id = UUID.randomUUID();
+        // Changes committed in the same millisecond share their change time
+        long changedAt = Instant.now().toEpochMilli();
+
+        // New changes only, other tests may be changing events meanwhile
+        AssertSubscriber<EventChangeFeed.Change> watcher = eventChangeFeed.watch(null)
+                .select().where(change -> change.id().equals(id))
+                .subscribe().withSubscriber(AssertSubscriber.create(10));
+        eventChangeFeed.publish("{\"operation\":\"INSERT\",\"id\":\"" + id + "\",\"changed_at\":" + changedAt + "}");
+        eventChangeFeed.publish("{\"operation\":\"UPDATE\",\"id\":\"" + id + "\",\"changed_at\":" + changedAt + "}");
+        watcher.awaitItems(2);
+        Assertions.assertEquals(List.of(EventChangeFeed.ChangeType.CREATED, EventChangeFeed.ChangeType.UPDATED),
+                watcher.getItems().stream().map(EventChangeFeed.Change::type).toList());
+        String created = eventChangeFeed.position(watcher.getItems().get(0));
+        watcher.cancel();
+
+        // Resuming replays the retained changes after the position before the new ones
+        AssertSubscriber<EventChangeFeed.Change> resumed = eventChangeFeed.watch(created)
+                .select().where(change -> change.id().equals(id))
+                .subscribe().withSubscriber(AssertSubscriber.create(10));
+        eventChangeFeed.publish("{\"operation\":\"DELETE\",\"id\":\"" + id + "\",\"changed_at\":" + changedAt + "}");
+        resumed.awaitItems(2);
+        Assertions.assertEquals(List.of(EventChangeFeed.ChangeType.UPDATED, EventChangeFeed.ChangeType.DELETED),
+                resumed.getItems().stream().map(EventChangeFeed.Change::type).toList());
+        resumed.cancel();
+
+        // Changes after the position of another feed cannot be replayed
+        eventChangeFeed.watch(UUID.randomUUID() + ":1").subscribe().withSubscriber(AssertSubscriber.create(10))
+                .assertFailedWith(EventServiceException.class, "not retained by this feed");
+        eventChangeFeed.watch("invalid").subscribe().withSubscriber(AssertSubscriber.create(10))
+                .assertFailedWith(EventServiceException.class, "Invalid position");
+    }
+
+    @Test
+    void testWatchEventsThroughService() throws Throwable {
+        // The changes are matched once the id of the created event is known, its notification may come first
+        CompletableFuture<UUID> created = new CompletableFuture<>();
+        CompletableFuture<List<EventChangeFeed.ChangeType>> changes = eventChangeFeed.watch(null)
+                .select().when(change -> Uni.createFrom().completionStage(created).map(change.id()::equals))
+                .select().first(3)
+                .map(EventChangeFeed.Change::type)
+                .collect().asList()
+                .subscribeAsCompletionStage();
+
+        Event event = new Event();
+        event.name = "testWatchEventsThroughService";
+        event.description = "Test description";
+        event.price = 10.0;
+        event.location = "Test location";
+        event.startDate = new Date();
+        event.endDate = new Date();
+        event.organizerId = UUID.randomUUID();
+        event.creatorId = UUID.randomUUID();
+        UUID id = VertxContextSupport.subscribeAndAwait(() -> eventService.createEvent(event));
+        created.complete(id);
+
+        Event update = new Event();
+        update.id = id;
+        update.price = 20.0;
+        VertxContextSupport.subscribeAndAwait(() -> eventService.updateEvent(update));
+        VertxContextSupport.subscribeAndAwait(() -> eventService.deleteEvent(id));
+
+        // Each committed change reaches the watcher through the trigger of the event table and the subscriber of its
+        // channel
+        Assertions.assertEquals(List.of(EventChangeFeed.ChangeType.CREATED, EventChangeFeed.ChangeType.UPDATED,
+                EventChangeFeed.ChangeType.DELETED), changes.get(10, TimeUnit.SECONDS));
+    }
+
+    @Test
+    void testWatchEventsSlowWatcher() {
+        UUID id = UUID.randomUUID();
+        AssertSubscriber<EventChangeFeed.Change> watcher = eventChangeFeed.watch(null).subscribe().withSubscriber(AssertSubscriber.create(0));
+        for (int i = 0; i <= 1000; i++) {
+            eventChangeFeed.publish("{\"operation\":\"UPDATE\",\"id\":\"" + id + "\",\"changed_at\":" + Instant.now().toEpochMilli() + "}");
+        }
+        watcher.assertFailedWith(EventServiceException.class, "changes behind");
+        Assertions.assertSame(EventServiceException.Type.RESOURCE_EXHAUSTED, ((EventServiceException) watcher.getFailure()).getType());
+    }
+
+    @RunOnVertxContext
+    @Test
+    void testOutbox(TransactionalUniAsserter asserter) {
+        asserter.execute(() -> {
+            Event event = new Event();
+            event.name = "testOutbox";
+            event.description = "Test description";
+            event.price = 10.0;
+            event.location = "Test location";
+            event.startDate = new Date();
+            event.endDate = new Date();
+            event.organizerId = UUID.randomUUID();
+            event.creatorId = UUID.randomUUID();
+            return eventService.createEvent(event).invoke(id -> asserter.putData("id", id));
+        });
+        asserter.execute(() -> {
+            Event update = new Event();
+            update.id = (UUID) asserter.getData("id");
+            update.price = 20.0;
+            return eventService.updateEvent(update);
+        });
+        asserter.execute(() -> eventService.deleteEvent((UUID) asserter.getData("id")));
+
+        // Each change is appended to the outbox in its transaction, with the event unless deleted
+        asserter.assertThat(() -> Panache.getSession().chain(session -> session.createNativeQuery(
+                        "SELECT operation || ':' || coalesce(payload ->> 'price', '') FROM event_outbox WHERE event_id = :id ORDER BY id", String.class)
+                .setParameter("id", asserter.getData("id"))
+                .getResultList()), entries -> Assertions.assertEquals(List.of("CREATED:10", "UPDATED:20", "DELETED:"), entries));
+
+        asserter.surroundWith(u -> Panache.withSession(() -> u));
+    }
+
+    @Test
+    void testOutboxRelay() {
+        UUID eventId = UUID.randomUUID();
+        pool.preparedQuery("INSERT INTO event_outbox (event_id, operation, payload) VALUES ($1, 'UPDATED', '{}'), ($1, 'DELETED', null)")
+                .executeAndAwait(Tuple.of(eventId));
+
+        // The second change of the event waits for the first one to be relayed, then the outbox is drained
+        Assertions.assertTrue(outboxRelay.relay().await().indefinitely() >= 2);
+        Assertions.assertEquals(0, pool.preparedQuery("SELECT id FROM event_outbox WHERE event_id = $1")
+                .executeAndAwait(Tuple.of(eventId)).size());
+    }
+
+    @RunOnVertxContext
+    @Test
+    void testUpdateEventVersion(TransactionalUniAsserter asserter) {
+        asserter.execute(() -> {
+            Event event = new Event();
+            event.name = "testUpdateEventVersion";
+            event.description = "Test description";
+            event.price = 10.0;
+            event.location = "Test location";
+            event.startDate = new Date();
+            event.endDate = new Date();
+            event.organizerId = UUID.randomUUID();
+            event.creatorId = UUID.randomUUID();
+            event.createdAt = new Date();
+            event.updatedAt = new Date();
+
+            return event.persist().invoke(persisted -> asserter.putData("id", ((Event) persisted).id));
+        });
+
+        // Updates are conditioned on the version they expect, each one incrementing it
+        asserter.assertThat(() -> {
+            Event update = new Event();
+            update.id = (UUID) asserter.getData("id");
+            update.price = 20.0;
+            return eventService.updateEvent(update, 0L);
+        }, id -> Assertions.assertEquals(asserter.getData("id"), id));
+
+        asserter.assertFailedWith(() -> {
+            Event update = new Event();
+            update.id = (UUID) asserter.getData("id");
+            update.price = 30.0;
+            return eventService.updateEvent(update, 0L);
+        }, e -> Assertions.assertSame(EventServiceException.Type.FAILED_PRECONDITION, ((EventServiceException) e).getType()));
+
+        asserter.assertFailedWith(() -> {
+            Event update = new Event();
+            update.id = UUID.randomUUID();
+            update.price = 30.0;
+            return eventService.updateEvent(update, 0L);
+        }, e -> Assertions.assertSame(EventServiceException.Type.NOT_FOUND, ((EventServiceException) e).getType()));
+
+        asserter.assertThat(() -> Panache.getSession()
+                .invoke(Mutiny.Session::clear)
+                .chain(() -> Event.<Event>findById(asserter.getData("id"))), event -> {
+            Assertions.assertEquals(1L, event.version);
+            Assertions.assertEquals(20.0, event.price);
+        });
+
+        asserter.execute(() -> Event.deleteAll());
+
+        asserter.surroundWith(u -> Panache.withSession(() -> u));
+    }
+
+    @Test
+    void testSingleFlight() throws Exception {
+        SingleFlight<String, String> singleFlight = new SingleFlight<>();
+        AtomicInteger loads = new AtomicInteger();
+        CompletableFuture<String> query = new CompletableFuture<>();
+        int callers = 50;
+        ExecutorService executor = Executors.newFixedThreadPool(callers);
+        try {
+            // A burst of concurrent callers of the same key, all subscribed before the query completes
+            CountDownLatch start = new CountDownLatch(1);
+            CountDownLatch subscribed = new CountDownLatch(callers);
+            List<CompletableFuture<String>> results = new ArrayList<>();
+            for (int i = 0; i < callers; i++) {
+                CompletableFuture<String> result = new CompletableFuture<>();
+                results.add(result);
+                executor.execute(() -> {
+                    try {
+                        start.await();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                    singleFlight.load("key", key -> {
+                        loads.incrementAndGet();
+                        return Uni.createFrom().completionStage(query);
+                    }).subscribe().with(result::complete, result::completeExceptionally);
+                    subscribed.countDown();
+                });
+            }
+            start.countDown();
+            Assertions.assertTrue(subscribed.await(10, TimeUnit.SECONDS));
+            Assertions.assertEquals(1, singleFlight.inFlight());
+
+            query.complete("value");
+            for (CompletableFuture<String> result : results) {
+                Assertions.assertEquals("value", result.get(10, TimeUnit.SECONDS));
+            }
+            Assertions.assertEquals(1, loads.get());
+            Assertions.assertEquals(0, singleFlight.inFlight());
+
+            // Nothing is kept once the query completes, failures included
+            EventServiceException failure = EventServiceException.NOT_FOUND.withMessage("Not found");
+            Uni<String> failed = singleFlight.load("key", key -> {
+                loads.incrementAndGet();
+                return Uni.createFrom().failure(failure);
+            });
+            Assertions.assertSame(failure, Assertions.assertThrows(EventServiceException.class, () -> failed.await().indefinitely()));
+            Assertions.assertEquals(2, loads.get());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @RunOnVertxContext
+    @Test
+    void testGetEventDetailsSingleFlight(TransactionalUniAsserter asserter) {
+        asserter.execute(() -> {
+            Event event = new Event();
+            event.name = "testGetEventDetailsSingleFlight";
+            event.description = "Test description";
+            event.price = 10.0;
+            event.location = "Test location";
+            event.startDate = new Date();
+            event.endDate = new Date();
+            event.organizerId = UUID.randomUUID();
+            event.creatorId = UUID.randomUUID();
+            event.createdAt = new Date();
+            event.updatedAt = new Date();
+
+            return event.persist().invoke(persisted -> asserter.putData("id", ((Event) persisted).id));
+        });
+
+        asserter.execute(() -> asserter.putData("queries",
+                meterRegistry.get(EventMetrics.QUERY_TIMER).tag("method", EventService.Method.DETAILS.name())
+                        .timers().stream().mapToLong(timer -> timer.count()).sum()));
+
+        // A burst of loads of the same event runs a single query, the cache of the details, which coalesces its own
+        // loads, being bypassed
+        asserter.assertThat(() -> {
+            List<Uni<Event>> lookups = new ArrayList<>();
+            for (int i = 0; i < 20; i++) {
+                lookups.add(eventService.loadEventDetails((UUID) asserter.getData("id")));
+            }
+            return Uni.join().all(lookups).andFailFast();
+        }, events -> {
+            Assertions.assertEquals(20, events.size());
+            events.forEach(event -> Assertions.assertEquals(asserter.getData("id"), event.id));
+            Assertions.assertEquals((long) asserter.getData("queries") + 1,
+                    meterRegistry.get(EventMetrics.QUERY_TIMER).tag("method", EventService.Method.DETAILS.name())
+                            .timers().stream().mapToLong(timer -> timer.count()).sum());
+        });
+
+        asserter.execute(() -> Event.deleteAll());
+
+        asserter.surroundWith(u -> Panache.withSession(() -> u));
+    }
+
+    @RunOnVertxContext
+    @Test
+    void testGetEventDetailsAfterUpdateDuringLoad(TransactionalUniAsserter asserter) {
+        asserter.execute(() -> {
+            Event event = new Event();
+            event.name = "testGetEventDetailsAfterUpdateDuringLoad";
+            event.description = "Test description";
+            event.price = 10.0;
+            event.location = "Test location";
+            event.startDate = new Date();
+            event.endDate = new Date();
+            event.organizerId = UUID.randomUUID();
+            event.creatorId = UUID.randomUUID();
+            event.createdAt = new Date();
+            event.updatedAt = new Date();
+
+            return event.persist().invoke(persisted -> asserter.putData("id", ((Event) persisted).id));
+        });
+
+        // A load reads the event before the update, and is still in flight once it is committed
+        asserter.execute(() -> eventService.loadEventDetails((UUID) asserter.getData("id")).invoke(event -> {
+            CompletableFuture<Event> stale = new CompletableFuture<>();
+            eventService.eventDetailsFlight.load(event.id, key -> Uni.createFrom().completionStage(stale)).subscribe().with(ignored -> {
+            });
+            asserter.putData("stale", stale);
+            asserter.putData("before", event);
+        }));
+        asserter.execute(() -> {
+            Event event = new Event();
+            event.id = (UUID) asserter.getData("id");
+            event.price = 20.0;
+            return eventService.updateEvent(event);
+        });
+
+        // The next lookup runs its own load instead of joining the one started before the update, which would cache the
+        // event as it was before the update. Updates do not go through the session, clear it to reload the event.
+        asserter.assertThat(() -> Panache.getSession().invoke(Mutiny.Session::clear)
+                .chain(() -> eventService.getEventDetails((UUID) asserter.getData("id")))
+                .ifNoItem().after(Duration.ofSeconds(10)).fail(), event -> Assertions.assertEquals(20.0, event.price));
+        asserter.execute(() -> {
+            ((CompletableFuture<Event>) asserter.getData("stale")).complete((Event) asserter.getData("before"));
+            return Uni.createFrom().voidItem();
+        });
+        asserter.assertThat(() -> eventService.getEventDetails((UUID) asserter.getData("id")),
+                event -> Assertions.assertEquals(20.0, event.price));
+
+        asserter.execute(() -> Event.deleteAll());
+
+        asserter.surroundWith(u -> Panache.withSession(() -> u));
+    }
+
+    @RunOnVertxContext
+    @Test
+    void testGetEventsDetails(TransactionalUniAsserter asserter) {
+        for (int i = 1; i <= 2; i++) {
+            String name = "testGetEventsDetails " + i;
+            asserter.execute(() -> {
+                Event event = new Event();
+                event.name = name;
+                event.description = "Test description";
+                event.price = 10.0;
+                event.location = "Test location";
+                event.startDate = new Date();
+                event.endDate = new Date();
+                event.organizerId = UUID.randomUUID();
+                event.creatorId = UUID.randomUUID();
+                event.createdAt = new Date();
+                event.updatedAt = new Date();
+
+                return event.persist().invoke(persisted -> asserter.putData(name, ((Event) persisted).id));
+            });
+        }
+
+        // Events come in the order of the ids, repeated ids included, missing ones as null
+        asserter.assertThat(() -> eventService.getEventsDetails(List.of((UUID) asserter.getData("testGetEventsDetails 2"),
+                UUID.randomUUID(), (UUID) asserter.getData("testGetEventsDetails 1"), (UUID) asserter.getData("testGetEventsDetails 2"))), events -> {
+            Assertions.assertEquals(4, events.size());
+            Assertions.assertEquals("testGetEventsDetails 2", events.get(0).name);
+            Assertions.assertNull(events.get(1));
+            Assertions.assertEquals("testGetEventsDetails 1", events.get(2).name);
+            Assertions.assertEquals(asserter.getData("testGetEventsDetails 2"), events.get(3).id);
+            Assertions.assertEquals(0L, events.get(0).version);
+        });
+
+        asserter.assertThat(() -> eventService.getEventsDetails(List.of()), events -> Assertions.assertTrue(events.isEmpty()));
+
+        asserter.execute(() -> Event.deleteAll());
+
+        asserter.surroundWith(u -> Panache.withSession(() -> u));
+    }
+
+    @RunOnVertxContext
+    @Test
+    void testCreateEventIdempotency(TransactionalUniAsserter asserter) {
+        String idempotencyKey = UUID.randomUUID().toString();
+        UUID organizerId = UUID.randomUUID();
+        Date date = new Date();
+        for (int i = 0; i < 3; i++) {
+            boolean cached = i < 2;
+            asserter.execute(() -> cached ? Uni.createFrom().voidItem() : idempotencyKeysCache.invalidateAll());
+            // Each retry sends a new copy of the event, which would conflict with the event created by the first attempt
+            asserter.assertThat(() -> {
+                Event event = new Event();
+                event.name = "testCreateEventIdempotency";
+                event.description = "Test description";
+                event.price = 10.0;
+                event.location = "Test location";
+                event.startDate = date;
+                event.endDate = date;
+                event.organizerId = organizerId;
+                event.creatorId = UUID.randomUUID();
+                event.createdAt = new Date();
+                event.updatedAt = new Date();
+
+                return eventService.createEvent(event, idempotencyKey);
+            }, id -> {
+                if (asserter.getData("id") == null) {
+                    asserter.putData("id", id);
+                }
+                Assertions.assertEquals(asserter.getData("id"), id);
+            });
+        }
+
+        asserter.assertThat(() -> Event.count("name", "testCreateEventIdempotency"), count -> Assertions.assertEquals(1L, count));
+
+        // The key cannot be reused by another request, whether it is cached or not
+        for (int i = 0; i < 2; i++) {
+            boolean cached = i < 1;
+            asserter.execute(() -> cached ? Uni.createFrom().voidItem() : idempotencyKeysCache.invalidateAll());
+            asserter.assertFailedWith(() -> {
+                Event event = new Event();
+                event.name = "testCreateEventIdempotency other";
+                event.description = "Test description";
+                event.price = 20.0;
+                event.location = "Test location";
+                event.startDate = date;
+                event.endDate = date;
+                event.organizerId = organizerId;
+                event.creatorId = UUID.randomUUID();
+                event.createdAt = new Date();
+                event.updatedAt = new Date();
+
+                return eventService.createEvent(event, idempotencyKey);
+            }, e -> Assertions.assertSame(EventServiceException.Type.FAILED_PRECONDITION, ((EventServiceException) e).getType()));
+        }
+        asserter.assertThat(() -> Event.count("name", "testCreateEventIdempotency other"), count -> Assertions.assertEquals(0L, count));
+
+        // Without a key the creation still conflicts
+        asserter.assertFailedWith(() -> {
+            Event event = new Event();
+            event.name = "testCreateEventIdempotency";
+            event.description = "Test description";
+            event.price = 10.0;
+            event.location = "Test location";
+            event.startDate = new Date();
+            event.endDate = new Date();
+            event.organizerId = UUID.randomUUID();
+            event.creatorId = UUID.randomUUID();
+            event.createdAt = new Date();
+            event.updatedAt = new Date();
+
+            return eventService.createEvent(event);
+        }, e -> Assertions.assertSame(EventServiceException.Type.CONFLICT, ((EventServiceException) e).getType()));
+
+        asserter.execute(() -> Event.deleteAll());
+
+        asserter.surroundWith(u -> Panache.withSession(() -> u));
+    }
+
+    @Test
+    void testIdempotencyKeyPurge() {
+        String expiredKey = UUID.randomUUID().toString();
+        String recentKey = UUID.randomUUID().toString();
+        pool.preparedQuery("INSERT INTO event_idempotency_key (key, request_hash, event_id, created_at)"
+                        + " VALUES ($1, repeat('0', 64), $3, now() - interval '2 days'), ($2, repeat('0', 64), $3, now())")
+                .executeAndAwait(Tuple.of(expiredKey, recentKey, UUID.randomUUID()));
+
+        Assertions.assertTrue(idempotencyKeyPurge.purge().await().indefinitely() >= 1);
+
+        Assertions.assertEquals(List.of(recentKey), pool.preparedQuery("SELECT key FROM event_idempotency_key WHERE key = ANY($1)")
+                .executeAndAwait(Tuple.of(new String[]{expiredKey, recentKey})).stream().map(row -> row.getString("key")).toList());
+        pool.preparedQuery("DELETE FROM event_idempotency_key WHERE key = $1").executeAndAwait(Tuple.of(recentKey));
+    }
 }
@@ -0,0 +1,95 @@
+package com.open.su;
+
+import io.quarkus.reactive.datasource.ReactiveDataSource;
+import io.quarkus.test.junit.QuarkusTest;
+import io.quarkus.test.junit.QuarkusTestProfile;
+import io.quarkus.test.junit.TestProfile;
+import io.vertx.mutiny.pgclient.PgPool;
+import jakarta.inject.Inject;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+
+/**
+ * Routing of the reads with the dev services database acting as both the primary and the read replica
+ */
+@QuarkusTest
+@TestProfile(ReadReplicaRouterTest.ReplicaProfile.class)
+class ReadReplicaRouterTest {
+
+    @Inject
+    ReadReplicaRouter readReplicaRouter;
+
+    @Inject
+    @ReactiveDataSource(ReadReplicaRouter.REPLICA)
+    PgPool replica;
+
+    @Inject
+    EventService eventService;
+
+    @Test
+    void testReadsAreRoutedToTheReplica() {
+        Optional<PgPool> routed = readReplicaRouter.replica();
+        Assertions.assertTrue(routed.isPresent());
+        Assertions.assertSame(replica, routed.get());
+        Assertions.assertNotNull(eventService.countEvents(false).await().indefinitely());
+    }
+
+    @Test
+    void testReadsArePinnedAfterTheWritesOfTheClient() throws Exception {
+        ReadYourWritesInterceptor.callContext(0).call(() -> {
+            Assertions.assertTrue(readReplicaRouter.replica().isPresent());
+            readReplicaRouter.writeRecorder().run();
+            Assertions.assertTrue(readReplicaRouter.replica().isEmpty());
+            Assertions.assertTrue(ReadYourWritesInterceptor.lastWrite().recorded.get() > 0);
+            return null;
+        });
+
+        // the other clients keep reading from the replica
+        ReadYourWritesInterceptor.callContext(0).call(() -> {
+            Assertions.assertTrue(readReplicaRouter.replica().isPresent());
+            return null;
+        });
+        Assertions.assertTrue(readReplicaRouter.replica().isPresent());
+    }
+
+    @Test
+    void testReadsArePinnedByTheLastWriteSentByTheClient() throws Exception {
+        ReadYourWritesInterceptor.callContext(System.currentTimeMillis()).call(() -> {
+            Assertions.assertTrue(readReplicaRouter.replica().isEmpty());
+            return null;
+        });
+        ReadYourWritesInterceptor.callContext(System.currentTimeMillis() - 3_600_000).call(() -> {
+            Assertions.assertTrue(readReplicaRouter.replica().isPresent());
+            return null;
+        });
+    }
+
+    @Test
+    void testSharedReadsArePinnedAfterTheWritesOfTheirKey() {
+        UUID written = UUID.randomUUID();
+        UUID other = UUID.randomUUID();
+        Assertions.assertTrue(readReplicaRouter.replica(written).isPresent());
+
+        // the shared reads of the key are pinned whatever the client, the other keys are not
+        readReplicaRouter.recordSharedWrite(written);
+        Assertions.assertTrue(readReplicaRouter.replica(written).isEmpty());
+        Assertions.assertTrue(readReplicaRouter.replica(other).isPresent());
+        Assertions.assertTrue(readReplicaRouter.replica().isPresent());
+    }
+
+    public static class ReplicaProfile implements QuarkusTestProfile {
+        @Override
+        public Map<String, String> getConfigOverrides() {
+            return Map.of(
+                    "event-service.read-replica.enabled", "true",
+                    "event-service.read-replica.pin-after-write", "1M",
+                    "quarkus.datasource.\"replica\".reactive.url", "${quarkus.datasource.reactive.url}",
+                    "quarkus.datasource.\"replica\".username", "${quarkus.datasource.username}",
+                    "quarkus.datasource.\"replica\".password", "${quarkus.datasource.password}");
+        }
+    }
+}